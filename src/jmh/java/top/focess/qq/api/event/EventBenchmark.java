@@ -0,0 +1,66 @@
+package top.focess.qq.api.event;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import top.focess.qq.FocessQQ;
+import top.focess.qq.benchmark.BenchmarkEnvironment;
+import top.focess.qq.core.event.RegisteredListener;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * It is in the package of ListenerHandler to measure the listener loop without the scheduler hop of EventManager.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EventBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int listeners;
+
+    private RegisteredListener[] registeredListeners;
+
+    @Setup
+    public void setup() throws NoSuchMethodException {
+        BenchmarkEnvironment.setup();
+        final Method method = BenchmarkListener.class.getMethod("onBenchmarkEvent", BenchmarkEvent.class);
+        this.registeredListeners = new RegisteredListener[this.listeners];
+        for (int i = 0; i < this.listeners; i++) {
+            final BenchmarkListener listener = new BenchmarkListener();
+            this.registeredListeners[i] = new RegisteredListener(listener, method, method.getAnnotation(EventHandler.class));
+            ListenerHandler.register(FocessQQ.getMainPlugin(), listener);
+        }
+    }
+
+    @Benchmark
+    public void submitListenerHandler() {
+        ListenerHandler.submit(this.registeredListeners, new BenchmarkEvent());
+    }
+
+    @Benchmark
+    public void submitEventManager() throws EventSubmitException {
+        EventManager.submit(new BenchmarkEvent());
+    }
+
+    @Benchmark
+    public void submitAsyncEventManager(final Blackhole blackhole) {
+        blackhole.consume(EventManager.submitAsync(new BenchmarkEvent()).join());
+    }
+
+    public static class BenchmarkEvent extends Event {
+
+        private static final ListenerHandler LISTENER_HANDLER = new ListenerHandler();
+
+        private int handled;
+    }
+
+    public static class BenchmarkListener implements Listener {
+
+        @EventHandler
+        public void onBenchmarkEvent(final BenchmarkEvent event) {
+            event.handled++;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package top.focess.qq.benchmark;
+
+import top.focess.qq.test.environment.TestEnvironment;
+
+/**
+ * Boot the framework once per benchmark JVM with the TestBotManager, so the benchmarks need no QQ account.
+ */
+public class BenchmarkEnvironment {
+
+    private static boolean setup;
+
+    public static synchronized void setup() {
+        if (setup)
+            return;
+        TestEnvironment.setup(new String[]{
+                "--user", "123456789", "19283746", "--noDefaultPluginLoad", "--admin", "123456789", "--botManager", "test"
+        });
+        setup = true;
+    }
+}
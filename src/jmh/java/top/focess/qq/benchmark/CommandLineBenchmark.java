@@ -0,0 +1,21 @@
+package top.focess.qq.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import top.focess.qq.api.command.CommandLine;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CommandLineBenchmark {
+
+    @Param({"help", "permission set Main \"register listener\"", "exec say hello \\\"world\\\" with a rather long message to split"})
+    public String command;
+
+    @Benchmark
+    public List<String> splitCommand() {
+        return CommandLine.splitCommand(this.command);
+    }
+}
@@ -0,0 +1,27 @@
+package top.focess.qq.benchmark;
+
+import net.mamoe.mirai.message.data.At;
+import net.mamoe.mirai.message.data.MessageUtils;
+import net.mamoe.mirai.message.data.PlainText;
+import org.openjdk.jmh.annotations.*;
+import top.focess.qq.core.bot.mirai.message.MiraiMessageChain;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MiraiMessageChainBenchmark {
+
+    private MiraiMessageChain messageChain;
+
+    @Setup
+    public void setup() {
+        this.messageChain = new MiraiMessageChain(MessageUtils.newChain(new At(123456789L), new PlainText(" permission set Main "), new PlainText("\"register listener\"")));
+    }
+
+    @Benchmark
+    public String toStringMessageChain() {
+        return this.messageChain.toString();
+    }
+}
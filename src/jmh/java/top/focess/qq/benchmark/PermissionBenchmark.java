@@ -0,0 +1,30 @@
+package top.focess.qq.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import top.focess.qq.core.permission.Permission;
+import top.focess.qq.core.permission.PermissionEnv;
+import top.focess.qq.core.util.MethodCaller;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@PermissionEnv(values = Permission.EVENT_SUBMIT)
+public class PermissionBenchmark {
+
+    @Setup
+    public void setup() {
+        BenchmarkEnvironment.setup();
+    }
+
+    @Benchmark
+    public void checkPermission() {
+        Permission.checkPermission(Permission.EVENT_SUBMIT);
+    }
+
+    @Benchmark
+    public Class<?> getCallerClass() {
+        return MethodCaller.getCallerClass();
+    }
+}
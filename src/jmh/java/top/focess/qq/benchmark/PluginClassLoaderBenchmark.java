@@ -0,0 +1,90 @@
+package top.focess.qq.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import top.focess.qq.api.plugin.Plugin;
+import top.focess.qq.core.plugin.PluginClassLoader;
+import top.focess.qq.core.plugin.PluginCoreClassLoader;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PluginClassLoaderBenchmark {
+
+    private static final String PLUGIN_CLASS = "benchmark.BenchmarkPluginClass";
+
+    @Param({"1", "10", "100"})
+    public int loaders;
+
+    private final List<PluginClassLoader> pluginClassLoaders = new ArrayList<>();
+
+    /**
+     * The class defined by the last PluginClassLoader, so the lookup cannot return early for the classes of the framework
+     */
+    private Class<?> pluginClass;
+
+    @Setup
+    public void setup() throws IOException, ClassNotFoundException {
+        BenchmarkEnvironment.setup();
+        final byte[] bytes = compilePluginClass();
+        // the loaders are registered when they are constructed, only the last plugin jar contains the class
+        for (int i = 0; i < this.loaders; i++) {
+            final File file = File.createTempFile("benchmark-plugin-", ".jar");
+            file.deleteOnExit();
+            try (final JarOutputStream jar = new JarOutputStream(new FileOutputStream(file))) {
+                if (i == this.loaders - 1) {
+                    jar.putNextEntry(new JarEntry(PLUGIN_CLASS.replace('.', '/') + ".class"));
+                    jar.write(bytes);
+                    jar.closeEntry();
+                }
+            }
+            this.pluginClassLoaders.add(new PluginClassLoader(file));
+        }
+        this.pluginClass = this.pluginClassLoaders.get(this.loaders - 1).loadClass(PLUGIN_CLASS);
+        if (!(this.pluginClass.getClassLoader() instanceof PluginClassLoader))
+            throw new IllegalStateException("The benchmark class is not defined by a PluginClassLoader");
+    }
+
+    private static byte[] compilePluginClass() throws IOException {
+        final Path root = Files.createTempDirectory("benchmark-plugin-");
+        final Path source = root.resolve("BenchmarkPluginClass.java");
+        Files.write(source, ("package benchmark;\npublic class BenchmarkPluginClass {}\n").getBytes(StandardCharsets.UTF_8));
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler.run(null, null, null, "-proc:none", "-d", root.toString(), source.toString()) != 0)
+            throw new IOException("Cannot compile " + source);
+        return Files.readAllBytes(root.resolve(PLUGIN_CLASS.replace('.', File.separatorChar) + ".class"));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        // closing the loaders removes them from the PluginCoreClassLoader, so the next trial starts with only its own loaders
+        for (final PluginClassLoader pluginClassLoader : this.pluginClassLoaders)
+            pluginClassLoader.close();
+        this.pluginClassLoaders.clear();
+        if (PluginCoreClassLoader.hasPluginClassLoader())
+            throw new IllegalStateException("The PluginClassLoaders are not removed");
+    }
+
+    @Benchmark
+    public Plugin getPluginByClass() {
+        return PluginCoreClassLoader.getPluginByClass(this.pluginClass);
+    }
+
+    @Benchmark
+    public Plugin getPluginByClassOrDefault() {
+        return PluginCoreClassLoader.getPluginByClassOrDefault(this.pluginClass);
+    }
+}
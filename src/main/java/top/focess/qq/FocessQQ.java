@@ -49,12 +49,14 @@ import top.focess.qq.core.commands.special.*;
 import top.focess.qq.core.listeners.ChatListener;
 import top.focess.qq.core.listeners.ConsoleListener;
 import top.focess.qq.core.listeners.PluginListener;
+import top.focess.qq.core.metrics.MetricsExporter;
 import top.focess.qq.core.permission.Permission;
 import top.focess.qq.core.permission.PermissionEnv;
 import top.focess.qq.core.plugin.PluginClassLoader;
 import top.focess.qq.core.plugin.PluginCoreClassLoader;
 import top.focess.qq.core.util.FocessSecurityManager;
 import top.focess.qq.core.util.MethodCaller;
+import top.focess.qq.core.util.Trace;
 import top.focess.scheduler.Task;
 import top.focess.util.Pair;
 import top.focess.util.option.Option;
@@ -221,6 +223,16 @@ public class FocessQQ {
         return options;
     }
 
+    /**
+     * Indicate whether the framework's internal schedulers should be elastic schedulers
+     *
+     * @return true if the option --elasticScheduler is given, false otherwise
+     * @see Schedulers#newInternalScheduler(Plugin, int, boolean, String)
+     */
+    public static boolean isElasticScheduler() {
+        return options != null && options.get("elasticScheduler") != null;
+    }
+
     /**
      * Get the Friend Mirai instance by its id
      *
@@ -378,7 +390,14 @@ public class FocessQQ {
     public static void main(final String[] args) {
         if (stopped)
             return;
-        System.setSecurityManager(new FocessSecurityManager());
+        boolean securityManager;
+        try {
+            System.setSecurityManager(new FocessSecurityManager());
+            securityManager = true;
+        } catch (final UnsupportedOperationException | SecurityException e) {
+            // the SecurityManager is removed or disallowed since JDK 18, file access is only guarded by explicit FileAccessGuard checks
+            securityManager = false;
+        }
         Thread.currentThread().setUncaughtExceptionHandler((t, e) -> {
             getLogger().thrLang("exception-uncaught-exception", e);
             getLogger().fatalLang("fatal-uncaught-exception");
@@ -394,6 +413,9 @@ public class FocessQQ {
             return;
         }
 
+        if (!securityManager)
+            getLogger().infoLang("security-manager-unsupported");
+
         CONSOLE_INPUT_THREAD.start();
         getLogger().debugLang("start-console-input-thread");
 
@@ -410,7 +432,16 @@ public class FocessQQ {
                 new OptionParserClassifier("noDefaultPluginLoad"),
                 new OptionParserClassifier("debug"),
                 new OptionParserClassifier("botManager", OptionType.DEFAULT_OPTION_TYPE),
-                new OptionParserClassifier("allowAll")
+                new OptionParserClassifier("allowAll"),
+                new OptionParserClassifier("elasticScheduler"),
+                new OptionParserClassifier("ingress", IntegerOptionType.INTEGER_OPTION_TYPE, OptionType.DEFAULT_OPTION_TYPE),
+                new OptionParserClassifier("synthetic", IntegerOptionType.INTEGER_OPTION_TYPE, IntegerOptionType.INTEGER_OPTION_TYPE, IntegerOptionType.INTEGER_OPTION_TYPE, OptionType.DEFAULT_OPTION_TYPE),
+                new OptionParserClassifier("syntheticCommands", IntegerOptionType.INTEGER_OPTION_TYPE, OptionType.DEFAULT_OPTION_TYPE),
+                new OptionParserClassifier("syntheticReplay", OptionType.DEFAULT_OPTION_TYPE),
+                new OptionParserClassifier("metrics", IntegerOptionType.INTEGER_OPTION_TYPE),
+                new OptionParserClassifier("metricsFile", OptionType.DEFAULT_OPTION_TYPE),
+                new OptionParserClassifier("metricsBind", OptionType.DEFAULT_OPTION_TYPE),
+                new OptionParserClassifier("traceSample", IntegerOptionType.INTEGER_OPTION_TYPE)
         );
         Option option = options.get("help");
         if (option != null) {
@@ -427,6 +458,15 @@ public class FocessQQ {
             getLogger().info("--debug");
             getLogger().info("--botManager <name>");
             getLogger().info("--allowAll");
+            getLogger().info("--elasticScheduler");
+            getLogger().info("--ingress <capacity> <block|drop_oldest|drop_by_type|sample>");
+            getLogger().info("--synthetic <groups> <members> <rate> <constant|ramp|burst>");
+            getLogger().info("--syntheticCommands <percent> <command;command...>");
+            getLogger().info("--syntheticReplay <file>");
+            getLogger().info("--metrics <port>");
+            getLogger().info("--metricsFile <file>");
+            getLogger().info("--metricsBind <address>");
+            getLogger().info("--traceSample <rate>");
             saveLogFile();
             getLogger().debugLang("save-log");
             exit();
@@ -538,6 +578,10 @@ public class FocessQQ {
                 }
             }
         }
+        MetricsExporter.start(options);
+        option = options.get("traceSample");
+        if (option != null)
+            Trace.setSampleRate(option.get(IntegerOptionType.INTEGER_OPTION_TYPE));
         try {
             running = true;
             PluginClassLoader.enablePlugin(MAIN_PLUGIN);
@@ -570,6 +614,7 @@ public class FocessQQ {
             getSocket().close();
         if (getUdpSocket() != null)
             getUdpSocket().close();
+        MetricsExporter.stop();
         // make sure scheduler is stopped at the end
         Schedulers.closeAll();
         if (!saved) {
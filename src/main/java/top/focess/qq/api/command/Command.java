@@ -3,6 +3,7 @@ package top.focess.qq.api.command;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.UnmodifiableView;
 import top.focess.command.CommandArgument;
 import top.focess.command.CommandDuplicateException;
@@ -15,13 +16,20 @@ import top.focess.qq.api.event.command.CommandExecutedEvent;
 import top.focess.qq.api.event.command.CommandPrepostEvent;
 import top.focess.qq.api.plugin.Plugin;
 import top.focess.qq.api.util.IOHandler;
+import top.focess.qq.core.jfr.FlightEvents;
+import top.focess.qq.core.metrics.Metrics;
 import top.focess.qq.core.permission.Permission;
 import top.focess.qq.core.permission.PermissionEnv;
+import top.focess.qq.core.util.LatencyHistogram;
+import top.focess.qq.core.util.Trace;
 
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Predicate;
 
 /**
@@ -34,6 +42,11 @@ public abstract class Command {
 
     private static final Map<String, Command> COMMANDS_MAP = Maps.newConcurrentMap();
 
+    /**
+     * The registered commands indexed by the lower case names and aliases. The name of a command takes precedence over the aliases of other commands.
+     */
+    private static final Map<String, Command> LOOKUP_MAP = Maps.newConcurrentMap();
+
     private top.focess.command.Command command;
 
     /**
@@ -41,6 +54,15 @@ public abstract class Command {
      */
     private Plugin plugin;
 
+    /**
+     * The metrics of the command, registered when the command is registered
+     */
+    private LongAdder executions;
+    private LongAdder failures;
+    private LatencyHistogram latency;
+
+    private volatile CommandResultCache resultCache;
+
     /**
      * Instance a <code>Command</code> Class with special name and aliases.
      *
@@ -109,6 +131,33 @@ public abstract class Command {
         return Collections.unmodifiableList(Lists.newArrayList(COMMANDS_MAP.values()));
     }
 
+    /**
+     * Get the registered command by its name or alias, ignoring case
+     *
+     * @param name the name or alias of the command
+     * @return the command, or null if there is no such command
+     */
+    @Nullable
+    public static Command getCommand(@NotNull final String name) {
+        final Command command = LOOKUP_MAP.get(name);
+        if (command != null)
+            return command;
+        return LOOKUP_MAP.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    private static synchronized void index(final Command command) {
+        for (final String alias : command.getAliases())
+            LOOKUP_MAP.putIfAbsent(alias.toLowerCase(Locale.ROOT), command);
+        LOOKUP_MAP.put(command.getName().toLowerCase(Locale.ROOT), command);
+    }
+
+    private static synchronized void unindex(final Command command) {
+        LOOKUP_MAP.values().removeIf(i -> i == command);
+        // restore the names and aliases shadowed by the removed command
+        for (final Command c : COMMANDS_MAP.values())
+            index(c);
+    }
+
     /**
      * Register the command
      *
@@ -121,7 +170,11 @@ public abstract class Command {
         Permission.checkPermission(Permission.REGISTER_COMMAND);
         top.focess.command.Command.register(command.command);
         command.plugin = plugin;
+        command.executions = Metrics.counter("focess_command_executions_total", "The count of the command executions", command.labels());
+        command.failures = Metrics.counter("focess_command_failures_total", "The count of the command executions which are refused or throw exceptions", command.labels());
+        command.latency = Metrics.histogram("focess_command_seconds", "The execution time of the command", command.labels());
         COMMANDS_MAP.put(command.getName(), command);
+        index(command);
     }
 
     public boolean isRegistered() {
@@ -140,6 +193,12 @@ public abstract class Command {
         Permission.checkPermission(Permission.REMOVE_COMMAND);
         this.command.unregister();
         COMMANDS_MAP.remove(this.getName());
+        unindex(this);
+        if (this.plugin != null) {
+            Metrics.remove("focess_command_executions_total", this.labels());
+            Metrics.remove("focess_command_failures_total", this.labels());
+            Metrics.remove("focess_command_seconds", this.labels());
+        }
     }
 
     @NotNull
@@ -201,8 +260,43 @@ public abstract class Command {
             Permission.checkPermission(Permission.EXECUTE_CONSOLE_COMMAND);
         if (sender.isAdministrator())
             Permission.checkPermission(Permission.EXECUTE_ADMINISTRATOR_COMMAND);
-        final CommandPrepostEvent event = new CommandPrepostEvent(sender, this, args, ioHandler);
+        final FlightEvents.CommandExecute jfr = FlightEvents.AVAILABLE ? new FlightEvents.CommandExecute() : null;
+        if (jfr != null)
+            jfr.begin();
         try {
+            final CommandResult result = this.execute0(sender, args, ioHandler, id, rawCommand);
+            if (jfr != null)
+                jfr.result = result.toString();
+            return result;
+        } finally {
+            if (jfr != null) {
+                jfr.end();
+                if (jfr.shouldCommit()) {
+                    jfr.command = this.getName();
+                    jfr.plugin = this.plugin == null ? null : this.plugin.getName();
+                    jfr.commit();
+                }
+            }
+        }
+    }
+
+    private CommandResult execute0(final CommandSender sender, final String[] args, final IOHandler ioHandler, final int id, final String rawCommand) throws Exception {
+        final CommandResultCache cache = this.resultCache;
+        final CommandResultCache.Key key = cache == null ? null : cache.newKey(sender, args);
+        if (cache != null) {
+            final CommandResultCache.Entry entry = cache.get(key);
+            // the executor permission is checked by the command itself, so check it again for the cached result
+            if (entry != null && sender.hasPermission(this.getPermission()) && this.getExecutorPermission().test(sender)) {
+                FocessQQ.getLogger().debugLang("command-cached-exec", sender.toString(), this.command, Arrays.toString(args), id);
+                sender.getSession().set("@previous_command", rawCommand);
+                final long start = System.nanoTime();
+                final CommandResult result = entry.replay(ioHandler);
+                this.record(start, false);
+                return result;
+            }
+        }
+        final CommandPrepostEvent event = new CommandPrepostEvent(sender, this, args, ioHandler);
+        try (Trace.Span ignored = Trace.span("command-prepost-event", this.getName())) {
             EventManager.submit(event);
         } catch (final EventSubmitException e) {
             FocessQQ.getLogger().thrLang("exception-submit-command-prepost-event", e);
@@ -212,10 +306,21 @@ public abstract class Command {
             return CommandResult.NONE;
         FocessQQ.getLogger().debugLang("command-before-exec", sender.toString(), this.command, Arrays.toString(args),id);
         sender.getSession().set("@previous_command", rawCommand);
-        final CommandResult result = this.command.execute(sender, args,ioHandler);
+        final CommandResult result;
+        final long start = System.nanoTime();
+        final CommandResultCache.Recorder recorder = cache == null ? null : new CommandResultCache.Recorder(ioHandler);
+        try (Trace.Span ignored = Trace.span("command", this.getName())) {
+            result = this.command.execute(sender, args, recorder == null ? ioHandler : recorder);
+        } catch (final Exception e) {
+            this.record(start, true);
+            throw e;
+        }
+        this.record(start, result == CommandResult.REFUSE || result == CommandResult.REFUSE_EXCEPTION);
+        if (recorder != null && result == CommandResult.ALLOW && !recorder.isInteractive())
+            cache.put(key, result, recorder);
         if (result.isExecuted()) {
             final CommandExecutedEvent event2 = new CommandExecutedEvent(this,args, ioHandler, sender, result);
-            try {
+            try (Trace.Span ignored = Trace.span("command-executed-event", this.getName())) {
                 EventManager.submit(event2);
             } catch (final EventSubmitException e) {
                 FocessQQ.getLogger().thrLang("exception-submit-command-executed-event", e);
@@ -224,6 +329,47 @@ public abstract class Command {
         return result;
     }
 
+    private void record(final long start, final boolean failed) {
+        if (this.latency == null)
+            return;
+        this.executions.increment();
+        if (failed)
+            this.failures.increment();
+        this.latency.record(System.nanoTime() - start);
+    }
+
+    private String[] labels() {
+        return new String[]{"command", this.getName(), "plugin", this.plugin.getName()};
+    }
+
+    /**
+     * Cache the results and the outputs of this command by the arguments. It is only for the read-only commands whose outputs depend on nothing but the arguments (and the sender if the scope is {@link CommandResultCache.Scope#SENDER}).
+     * Only the {@link CommandResult#ALLOW} results of the executions not reading input are cached.
+     * A command with a result cache cannot read input: {@link IOHandler#hasInput(int)} always returns false while it runs, so the input times out at once.
+     * Do not set the cache for a command which may ask for input.
+     * A cached result is replayed to the receiver without running the command, and without submitting the {@link CommandPrepostEvent} and the {@link CommandExecutedEvent}.
+     * The permission and the executor permission of the command are still checked.
+     * It is usually called in {@link #init()}.
+     *
+     * @param ttl     the time a result is kept
+     * @param maxSize the max count of the cached results
+     * @param scope   the scope the cached results are shared in
+     * @throws IllegalArgumentException if the ttl or the max size is not positive
+     */
+    protected final void setResultCache(@NotNull final Duration ttl, final int maxSize, @NotNull final CommandResultCache.Scope scope) {
+        this.resultCache = new CommandResultCache(ttl, maxSize, scope);
+    }
+
+    /**
+     * Get the result cache of this command
+     *
+     * @return the result cache, or null if the results of this command are not cached
+     */
+    @Nullable
+    public CommandResultCache getResultCache() {
+        return this.resultCache;
+    }
+
     @NotNull
     public CommandPermission getPermission() {
         return this.command.getPermission();
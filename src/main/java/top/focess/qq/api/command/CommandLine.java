@@ -2,15 +2,16 @@ package top.focess.qq.api.command;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
-import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 import top.focess.command.CommandResult;
 import top.focess.qq.FocessQQ;
 import top.focess.qq.api.plugin.Plugin;
 import top.focess.qq.api.scheduler.Schedulers;
 import top.focess.qq.api.util.IOHandler;
+import top.focess.qq.core.jfr.FlightEvents;
 import top.focess.qq.core.permission.Permission;
 import top.focess.qq.core.permission.PermissionEnv;
+import top.focess.qq.core.util.Trace;
 import top.focess.scheduler.Scheduler;
 import top.focess.util.Pair;
 
@@ -32,7 +33,7 @@ public class CommandLine {
     private static final Map<String, SpecialArgumentComplexHandler> SPECIAL_ARGUMENT_HANDLERS = Maps.newConcurrentMap();
     private static final Map<Plugin, List<Pair<String, SpecialArgumentComplexHandler>>> PLUGIN_SPECIAL_ARGUMENT_MAP = Maps.newConcurrentMap();
 
-    private static final Scheduler EXECUTOR = Schedulers.newThreadPoolScheduler(FocessQQ.getMainPlugin(), 7, false, "CommandLine");
+    private static final Scheduler EXECUTOR = Schedulers.newInternalScheduler(FocessQQ.getMainPlugin(), 7, false, "CommandLine");
 
     /**
      * Execute command using {@link CommandSender#CONSOLE}
@@ -77,12 +78,49 @@ public class CommandLine {
         FocessQQ.getLogger().debugLang("command-line-exec",sender.toString(), command, id);
         if (sender == CommandSender.CONSOLE)
             FocessQQ.getLogger().consoleInput(command);
-        final List<String> args = splitCommand(command);
+        final FlightEvents.CommandParse jfr = FlightEvents.AVAILABLE ? new FlightEvents.CommandParse() : null;
+        if (jfr != null)
+            jfr.begin();
+        final CommandTokenizer.Tokens tokens = CommandTokenizer.tokenize(command);
+        final List<String> args = tokens.getArgs();
+        if (jfr != null) {
+            jfr.end();
+            if (jfr.shouldCommit()) {
+                jfr.command = args.isEmpty() ? null : args.get(0);
+                jfr.arguments = args.size();
+                jfr.commit();
+            }
+        }
         if (args.size() == 0)
             return CompletableFuture.completedFuture(CommandResult.NONE);
-        final String name = args.get(0);
-        args.remove(0);
-        return exec0(sender, name, args.toArray(new String[0]), ioHandler, command,id);
+        return exec0(sender, args.get(0), tokens, ioHandler, command,id);
+    }
+
+    /**
+     * Check whether the first word of the command is the name or alias of a registered command, without splitting the whole command.
+     * It is used to let the ordinary chat messages skip the command engine.
+     *
+     * @param command the command
+     * @return true if the command may execute a registered command, false otherwise
+     */
+    public static boolean isCommand(@NotNull final String command) {
+        final int length = command.length();
+        int start = 0;
+        while (start < length && command.charAt(start) == ' ')
+            start++;
+        int end = start;
+        while (end < length) {
+            final char c = command.charAt(end);
+            if (c == ' ')
+                break;
+            // quotes and escapes are resolved by splitCommand only
+            if (c == '"' || c == '\\')
+                return true;
+            end++;
+        }
+        if (start == end)
+            return false;
+        return Command.getCommand(start == 0 && end == length ? command : command.substring(start, end)) != null;
     }
 
     /**
@@ -93,119 +131,52 @@ public class CommandLine {
      */
     @NotNull
     public static List<String> splitCommand(@NotNull final String command) {
-        final List<String> args = Lists.newArrayList();
-        final StringBuilder stringBuilder = new StringBuilder();
-        boolean stack = false;
-        boolean ignore = false;
-        Character last = null;
-        for (final char c : command.toCharArray()) {
-            if (ignore) {
-                ignore = false;
-                switch (c) {
-                    case 'a':
-                        stringBuilder.append((char) 7);
-                        break;
-                    case 'b':
-                        stringBuilder.append((char) 8);
-                        break;
-                    case 'f':
-                        stringBuilder.append((char) 12);
-                        break;
-                    case 'n':
-                        stringBuilder.append((char) 10);
-                        break;
-                    case 'r':
-                        stringBuilder.append((char) 13);
-                        break;
-                    case 't':
-                        stringBuilder.append((char) 9);
-                        break;
-                    case 'v':
-                        stringBuilder.append((char) 11);
-                        break;
-                    case '0':
-                        stringBuilder.append((char) 0);
-                        break;
-                    default:
-                        stringBuilder.append(c);
-                        break;
-                }
-            } else if (c == '\\')
-                ignore = true;
-            else if (c == ' ') {
-                if (!stack) {
-                    if (stringBuilder.length() > 0) {
-                        args.add(stringBuilder.toString());
-                        stringBuilder.delete(0, stringBuilder.length());
-                    }
-                } else
-                    stringBuilder.append(' ');
-            } else if (c == '"')
-                stack = !stack;
-            else if (c == '@' && !stack && last != null && last == ' ') {
-                stringBuilder.append('"');
-                stringBuilder.append('@');
-            } else stringBuilder.append(c);
-            last = c;
-        }
-        if (stringBuilder.length() != 0)
-            args.add(stringBuilder.toString());
-        return args;
+        return CommandTokenizer.tokenize(command).getArgs();
     }
 
-    @NotNull
-    @Contract("_ -> new")
-    private static Pair<String, String[]> splitSpecialArgument(@NotNull final String argument) {
-        final int leftIndex = argument.indexOf('(');
-        if (leftIndex == -1 || !argument.endsWith(")"))
-            return new Pair<>(argument, new String[0]);
-        final String name = argument.substring(0, leftIndex);
-        final String[] args = argument.substring(leftIndex + 1, argument.length() - 1).split(",");
-        return new Pair<>(name, args);
-    }
-
-    private static Future<CommandResult> exec0(final CommandSender sender, final String command, final String[] args, final IOHandler ioHandler, final String rawCommand, final int id) {
+    private static Future<CommandResult> exec0(final CommandSender sender, final String command, final CommandTokenizer.Tokens tokens, final IOHandler ioHandler, final String rawCommand, final int id) {
+        final List<String> all = tokens.getArgs();
+        final String[] args = all.subList(1, all.size()).toArray(new String[0]);
         FocessQQ.getLogger().debugLang("command-pre-exec", sender.toString(), command, Arrays.toString(args),id);
-        boolean flag = false;
-        Future<CommandResult> ret = CompletableFuture.completedFuture(CommandResult.NONE);
-        for (final Command com : Command.getCommands())
-            if (com.getAliases().stream().anyMatch(i -> i.equalsIgnoreCase(command)) || com.getName().equalsIgnoreCase(command)) {
-                FocessQQ.getLogger().debugLang("command-before-special-handler", sender.toString(), command, Arrays.toString(args),id);
-                for (int i = 0; i < args.length; i++)
-                    if (args[i].startsWith("\"@")) {
-                        final String h = args[i].substring(2);
-                        final Pair<String, String[]> pair = splitSpecialArgument(h);
-                        final String head = pair.getKey();
-                        final String[] values = pair.getValue();
-                        if (SPECIAL_ARGUMENT_HANDLERS.containsKey(head))
-                            args[i] = SPECIAL_ARGUMENT_HANDLERS.get(head).handle(head, sender, com, args, i, values);
-                        else if (SPECIAL_ARGUMENT_HANDLERS.containsKey(com.getPlugin().getName() + ":" + head))
-                            args[i] = SPECIAL_ARGUMENT_HANDLERS.get(com.getPlugin().getName() + ":" + head).handle(head, sender, com, args, i, values);
-                        else args[i] = args[i].substring(1);
-                    }
-                FocessQQ.getLogger().debugLang("command-after-special-handler", sender.toString(), command, Arrays.toString(args),id);
-                flag = true;
-                ret = EXECUTOR.submit(() -> {
-                    try {
-                        final CommandResult result = com.execute(sender, args, ioHandler,id,rawCommand);
-                        FocessQQ.getLogger().debugLang("command-after-exec", sender.toString(), command, Arrays.toString(args), result.toString(), id);
-                        return result;
-                    } catch (final Exception e) {
-                        ioHandler.outputLang("command-execute-exception", e.getMessage());
-                        FocessQQ.getLogger().thrLang("exception-command-execute", e);
-                        return CommandResult.REFUSE_EXCEPTION;
-                    }
-                },"execute-" + command + "-with-" + id, (exception) -> {
-                    final Throwable e = exception.getCause();
-                    ioHandler.outputLang("command-execute-exception", e.getMessage());
-                    FocessQQ.getLogger().thrLang("exception-command-execute", e);
-                    return CommandResult.REFUSE_EXCEPTION;
-                });
-                break;
+        final Command com = Command.getCommand(command);
+        if (com == null) {
+            if (sender == CommandSender.CONSOLE)
+                ioHandler.outputLang("unknown-command", command);
+            return CompletableFuture.completedFuture(CommandResult.NONE);
+        }
+        FocessQQ.getLogger().debugLang("command-before-special-handler", sender.toString(), command, Arrays.toString(args),id);
+        if (tokens.hasSpecialArguments())
+            for (int i = 0; i < args.length; i++) {
+                final CommandTokenizer.SpecialArgument specialArgument = tokens.getSpecialArgument(i + 1);
+                if (specialArgument == null)
+                    continue;
+                final String head = specialArgument.getName();
+                final String[] values = specialArgument.getValues();
+                if (SPECIAL_ARGUMENT_HANDLERS.containsKey(head))
+                    args[i] = SPECIAL_ARGUMENT_HANDLERS.get(head).handle(head, sender, com, args, i, values);
+                else if (SPECIAL_ARGUMENT_HANDLERS.containsKey(com.getPlugin().getName() + ":" + head))
+                    args[i] = SPECIAL_ARGUMENT_HANDLERS.get(com.getPlugin().getName() + ":" + head).handle(head, sender, com, args, i, values);
+                else args[i] = args[i].substring(1);
             }
-        if (!flag && sender == CommandSender.CONSOLE)
-            ioHandler.outputLang("unknown-command", command);
-        return ret;
+        FocessQQ.getLogger().debugLang("command-after-special-handler", sender.toString(), command, Arrays.toString(args),id);
+        final long queued = System.nanoTime();
+        return EXECUTOR.submit(() -> {
+            try {
+                Trace.record("queue command", com.getName(), queued);
+                final CommandResult result = com.execute(sender, args, ioHandler,id,rawCommand);
+                FocessQQ.getLogger().debugLang("command-after-exec", sender.toString(), command, Arrays.toString(args), result.toString(), id);
+                return result;
+            } catch (final Exception e) {
+                ioHandler.outputLang("command-execute-exception", e.getMessage());
+                FocessQQ.getLogger().thrLang("exception-command-execute", e);
+                return CommandResult.REFUSE_EXCEPTION;
+            }
+        },"execute-" + command + "-with-" + id, (exception) -> {
+            final Throwable e = exception.getCause();
+            ioHandler.outputLang("command-execute-exception", e.getMessage());
+            FocessQQ.getLogger().thrLang("exception-command-execute", e);
+            return CommandResult.REFUSE_EXCEPTION;
+        });
     }
 
     /**
@@ -0,0 +1,175 @@
+package top.focess.qq.api.command;
+
+import com.google.common.collect.Lists;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import top.focess.command.CommandResult;
+import top.focess.qq.api.util.IOHandler;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The cache of the results and the outputs of a read-only command, set by {@link Command#setResultCache(Duration, int, Scope)}.
+ * The least recently used result is evicted when the cache is full.
+ */
+public class CommandResultCache {
+
+    private final long ttl;
+    private final Scope scope;
+    private final Map<Key, Entry> entries;
+
+    CommandResultCache(@NotNull final Duration ttl, final int maxSize, @NotNull final Scope scope) {
+        if (ttl.isNegative() || ttl.isZero())
+            throw new IllegalArgumentException("TTL should be positive");
+        if (maxSize <= 0)
+            throw new IllegalArgumentException("Max size should be positive");
+        this.ttl = ttl.toNanos();
+        this.scope = scope;
+        this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Key, Entry> eldest) {
+                return this.size() > maxSize;
+            }
+        };
+    }
+
+    @Nullable
+    synchronized Entry get(@NotNull final Key key) {
+        final Entry entry = this.entries.get(key);
+        if (entry == null)
+            return null;
+        if (System.nanoTime() - entry.time > this.ttl) {
+            this.entries.remove(key);
+            return null;
+        }
+        return entry;
+    }
+
+    synchronized void put(@NotNull final Key key, @NotNull final CommandResult result, @NotNull final Recorder recorder) {
+        this.entries.put(key, new Entry(result, recorder.getOutputs()));
+    }
+
+    @NotNull
+    Key newKey(@NotNull final CommandSender sender, @NotNull final String[] args) {
+        return new Key(this.scope == Scope.SENDER ? sender : null, String.join("\0", args));
+    }
+
+    /**
+     * Clear all the cached results, for example when the data shown by the command changes
+     */
+    public synchronized void clear() {
+        this.entries.clear();
+    }
+
+    public synchronized int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * The scope the cached results are shared in
+     */
+    public enum Scope {
+        /**
+         * The results are shared by all the senders
+         */
+        GLOBAL,
+        /**
+         * The results are cached for each sender
+         */
+        SENDER
+    }
+
+    static final class Key {
+
+        private final CommandSender sender;
+        private final String args;
+
+        private Key(final CommandSender sender, final String args) {
+            this.sender = sender;
+            this.args = args;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (o == null || this.getClass() != o.getClass()) return false;
+            final Key key = (Key) o;
+            return Objects.equals(this.sender, key.sender) && this.args.equals(key.args);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Objects.hashCode(this.sender) + this.args.hashCode();
+        }
+    }
+
+    static final class Entry {
+
+        private final CommandResult result;
+        private final List<String> outputs;
+        private final long time = System.nanoTime();
+
+        private Entry(final CommandResult result, final List<String> outputs) {
+            this.result = result;
+            this.outputs = Collections.unmodifiableList(outputs);
+        }
+
+        @NotNull
+        CommandResult replay(@NotNull final IOHandler ioHandler) {
+            for (final String output : this.outputs)
+                ioHandler.output(output);
+            return this.result;
+        }
+    }
+
+    /**
+     * The receiver which passes the outputs to the real receiver and records them.
+     * A command reading input is never cached, and it gets no input.
+     */
+    static final class Recorder extends IOHandler {
+
+        private final IOHandler ioHandler;
+        private final List<String> outputs = Lists.newArrayList();
+        private volatile boolean interactive;
+
+        Recorder(@NotNull final IOHandler ioHandler) {
+            this.ioHandler = ioHandler;
+        }
+
+        @Override
+        public void output(@NotNull final String output) {
+            synchronized (this.outputs) {
+                this.outputs.add(output);
+            }
+            this.ioHandler.output(output);
+        }
+
+        @Override
+        public boolean hasInput() {
+            this.interactive = true;
+            return false;
+        }
+
+        @Override
+        public boolean hasInput(final int seconds) {
+            this.interactive = true;
+            return false;
+        }
+
+        boolean isInteractive() {
+            return this.interactive;
+        }
+
+        @NotNull
+        List<String> getOutputs() {
+            synchronized (this.outputs) {
+                return Lists.newArrayList(this.outputs);
+            }
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package top.focess.qq.api.command;
+
+import com.google.common.collect.Lists;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * Split the command into arguments in one pass over the characters, and parse the special arguments like <code>@handler(a,b)</code> when they end.
+ */
+final class CommandTokenizer {
+
+    private CommandTokenizer() {
+    }
+
+    /**
+     * Split the command into arguments
+     *
+     * @param command the command needed to be split
+     * @return the split arguments and the special arguments among them
+     * @see CommandLine#splitCommand(String)
+     */
+    @NotNull
+    static Tokens tokenize(@NotNull final CharSequence command) {
+        final Tokens tokens = new Tokens();
+        final int length = command.length();
+        final StringBuilder builder = new StringBuilder(length);
+        boolean stack = false;
+        boolean ignore = false;
+        boolean afterSpace = false;
+        for (int i = 0; i < length; i++) {
+            final char c = command.charAt(i);
+            if (ignore) {
+                ignore = false;
+                builder.append(unescape(c));
+            } else if (c == '\\')
+                ignore = true;
+            else if (c == ' ') {
+                if (!stack) {
+                    if (builder.length() > 0) {
+                        tokens.add(builder);
+                        builder.setLength(0);
+                    }
+                } else
+                    builder.append(' ');
+            } else if (c == '"')
+                stack = !stack;
+            else if (c == '@' && !stack && afterSpace)
+                builder.append('"').append('@');
+            else builder.append(c);
+            afterSpace = c == ' ';
+        }
+        if (builder.length() != 0)
+            tokens.add(builder);
+        return tokens;
+    }
+
+    private static char unescape(final char c) {
+        switch (c) {
+            case 'a':
+                return 7;
+            case 'b':
+                return 8;
+            case 'f':
+                return 12;
+            case 'n':
+                return 10;
+            case 'r':
+                return 13;
+            case 't':
+                return 9;
+            case 'v':
+                return 11;
+            case '0':
+                return 0;
+            default:
+                return c;
+        }
+    }
+
+    /**
+     * Parse the special argument which starts with <code>"@</code>
+     *
+     * @param token the special argument
+     * @return the name and the values of the special argument
+     */
+    @NotNull
+    private static SpecialArgument parseSpecialArgument(@NotNull final CharSequence token) {
+        final int length = token.length();
+        int left = -1;
+        for (int i = 2; i < length; i++)
+            if (token.charAt(i) == '(') {
+                left = i;
+                break;
+            }
+        if (left == -1 || token.charAt(length - 1) != ')')
+            return new SpecialArgument(token.subSequence(2, length).toString(), new String[0]);
+        return new SpecialArgument(token.subSequence(2, left).toString(), splitValues(token, left + 1, length - 1));
+    }
+
+    /**
+     * Split the values by commas, the same as {@link String#split(String)} with ","
+     */
+    @NotNull
+    private static String[] splitValues(final CharSequence token, final int start, final int end) {
+        final List<String> values = Lists.newArrayList();
+        int from = start;
+        for (int i = start; i < end; i++)
+            if (token.charAt(i) == ',') {
+                values.add(token.subSequence(from, i).toString());
+                from = i + 1;
+            }
+        if (values.isEmpty())
+            return new String[]{token.subSequence(start, end).toString()};
+        values.add(token.subSequence(from, end).toString());
+        int size = values.size();
+        while (size > 0 && values.get(size - 1).isEmpty())
+            size--;
+        return values.subList(0, size).toArray(new String[0]);
+    }
+
+    static final class Tokens {
+
+        private final List<String> args = Lists.newArrayList();
+
+        /**
+         * The special arguments by the index of the arguments, null if there is no special argument
+         */
+        private List<SpecialArgument> specialArguments;
+
+        private void add(final StringBuilder builder) {
+            this.args.add(builder.toString());
+            if (builder.length() >= 2 && builder.charAt(0) == '"' && builder.charAt(1) == '@') {
+                if (this.specialArguments == null)
+                    this.specialArguments = Lists.newArrayList();
+                while (this.specialArguments.size() < this.args.size() - 1)
+                    this.specialArguments.add(null);
+                this.specialArguments.add(parseSpecialArgument(builder));
+            }
+        }
+
+        @NotNull
+        List<String> getArgs() {
+            return this.args;
+        }
+
+        /**
+         * Get the special argument
+         *
+         * @param index the index of the argument
+         * @return the special argument, or null if the argument is not a special argument
+         */
+        @Nullable
+        SpecialArgument getSpecialArgument(final int index) {
+            if (this.specialArguments == null || index >= this.specialArguments.size())
+                return null;
+            return this.specialArguments.get(index);
+        }
+
+        boolean hasSpecialArguments() {
+            return this.specialArguments != null;
+        }
+    }
+
+    static final class SpecialArgument {
+
+        private final String name;
+        private final String[] values;
+
+        private SpecialArgument(final String name, final String[] values) {
+            this.name = name;
+            this.values = values;
+        }
+
+        String getName() {
+            return this.name;
+        }
+
+        String[] getValues() {
+            return this.values;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package top.focess.qq.api.event;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Represent a batch event listener method. It means this method must own one argument whose class is List of an implemented Event, for example {@code List<GroupChatEvent>}.
+ * The events are gathered after all the normal listeners of the event are called, and delivered in arrival order once the batch is full or the first event in the batch has waited for the max delay.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface BatchEventHandler {
+
+    /**
+     * Set the max size of one batch
+     *
+     * @return the max size of one batch
+     */
+    int maxSize() default 100;
+
+    /**
+     * Set the max delay of one batch in milliseconds
+     *
+     * @return the max delay of one batch in milliseconds
+     */
+    long maxDelay() default 1000;
+
+    /**
+     * Set whether the event should be gathered when the event is cancelled
+     *
+     * @return true if the event should not be gathered when the event is cancelled, false otherwise
+     */
+    boolean notCallIfCancelled() default false;
+
+    /**
+     * Set whether the event should be gathered when the event is prevented
+     *
+     * @return true if the event should not be gathered when the event is prevented, false otherwise
+     */
+    boolean notCallIfPrevented() default true;
+}
@@ -0,0 +1,109 @@
+package top.focess.qq.api.event;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import top.focess.qq.core.event.BatchListener;
+import top.focess.qq.core.event.RegisteredListener;
+
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The immutable dispatch plan of one event class. It flattens the listeners of the event class and all its super event classes into one array.
+ * Plans are built lazily and dropped after any listener is registered or unregistered.
+ */
+final class DispatchPlan {
+
+    private static final Map<Class<?>, DispatchPlan> PLANS = Maps.newConcurrentMap();
+
+    private static final AtomicLong VERSION = new AtomicLong();
+
+    private final long version;
+
+    private final RegisteredListener[] listeners;
+
+    private final BatchListener[] batchListeners;
+
+    /**
+     * The reason why the event cannot be submitted completely, null if the event class is valid
+     */
+    @Nullable
+    private final String error;
+
+    private DispatchPlan(final long version, final RegisteredListener[] listeners, final BatchListener[] batchListeners, @Nullable final String error) {
+        this.version = version;
+        this.listeners = listeners;
+        this.batchListeners = batchListeners;
+        this.error = error;
+    }
+
+    /**
+     * Get the dispatch plan of the event class
+     *
+     * @param cls the event class
+     * @return the dispatch plan of the event class
+     */
+    @NotNull
+    static DispatchPlan of(@NotNull final Class<? extends Event> cls) {
+        final DispatchPlan plan = PLANS.get(cls);
+        if (plan != null && plan.version == VERSION.get())
+            return plan;
+        final DispatchPlan newPlan = build(cls);
+        PLANS.put(cls, newPlan);
+        // the plan may be built before a concurrent invalidation cleared the plans, never keep it
+        if (newPlan.version != VERSION.get())
+            PLANS.remove(cls, newPlan);
+        return newPlan;
+    }
+
+    /**
+     * Mark all dispatch plans out of date and drop them. Called after the listeners in any ListenerHandler are changed.
+     * Dropping the plans releases the event classes and the listeners of the unloaded plugins.
+     */
+    static void invalidate() {
+        VERSION.incrementAndGet();
+        PLANS.clear();
+    }
+
+    @NotNull
+    private static DispatchPlan build(@NotNull final Class<?> cls) {
+        // read version before listeners, so any change after this point makes the plan out of date
+        final long version = VERSION.get();
+        final List<RegisteredListener> listeners = Lists.newArrayList();
+        final List<BatchListener> batchListeners = Lists.newArrayList();
+        String error = null;
+        Class<?> c = cls;
+        do {
+            if (Modifier.isAbstract(c.getModifiers())) {
+                error = "This event is an abstract class.";
+                break;
+            }
+            final ListenerHandler listenerHandler = ListenerHandler.getListenerHandler(c);
+            if (listenerHandler == null) {
+                error = "This event doesn't contain a LISTENER_HANDLER field.";
+                break;
+            }
+            Collections.addAll(listeners, listenerHandler.getListeners());
+            Collections.addAll(batchListeners, listenerHandler.getBatchListeners());
+        } while (!(c = c.getSuperclass()).equals(Event.class));
+        return new DispatchPlan(version, listeners.toArray(new RegisteredListener[0]), batchListeners.toArray(new BatchListener[0]), error);
+    }
+
+    /**
+     * Submit the event to all the listeners in this plan
+     *
+     * @param event the event need to be submitted
+     * @throws EventSubmitException if class of this event or any of its super event class is abstract or there is no LISTENER_HANDLER in it
+     */
+    void submit(@NotNull final Event event) throws EventSubmitException {
+        ListenerHandler.submit(this.listeners, event);
+        ListenerHandler.offer(this.batchListeners, event);
+        if (this.error != null)
+            throw new EventSubmitException(event, this.error);
+    }
+}
@@ -32,4 +32,12 @@ public @interface EventHandler {
      * @return true if this method should be called when the event is prevented, false otherwise
      */
     boolean notCallIfPrevented() default true;
+
+    /**
+     * Set the timeout of this event listener method in milliseconds.
+     * If it is positive, this method is called in an isolated thread and abandoned when it runs over the timeout, so the following listeners will not be blocked.
+     *
+     * @return the timeout of this event listener method in milliseconds, non-positive means no timeout
+     */
+    long timeout() default 0;
 }
@@ -1,18 +1,17 @@
 package top.focess.qq.api.event;
 
-import com.google.common.collect.Maps;
 import org.jetbrains.annotations.NotNull;
 import top.focess.qq.FocessQQ;
 import top.focess.qq.api.scheduler.Schedulers;
+import top.focess.qq.core.event.EventIngress;
+import top.focess.qq.core.jfr.FlightEvents;
 import top.focess.qq.core.permission.Permission;
 import top.focess.qq.core.permission.PermissionEnv;
 import top.focess.scheduler.Scheduler;
-import top.focess.scheduler.Task;
 
-import java.lang.reflect.Field;
-import java.lang.reflect.Modifier;
 import java.util.Map;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -23,89 +22,148 @@ import java.util.concurrent.TimeoutException;
 @PermissionEnv(values = Permission.EVENT_SUBMIT)
 public class EventManager {
 
-    private static final Scheduler SCHEDULER = Schedulers.newThreadPoolScheduler(FocessQQ.getMainPlugin(), 10, false, "EventManager");
-
-    private static final Map<Class<? extends Event>, ListenerHandler> LISTENER_HANDLER_MAP = Maps.newHashMap();
+    /**
+     * The striped execution lanes. The keys are hashed to a fixed count of lanes, so unrelated keys may share one lane.
+     */
+    private static final Scheduler[] LANES = new Scheduler[Runtime.getRuntime().availableProcessors()];
 
-    private static <T> T cast(final Object t) {
-        return (T) t;
+    static {
+        for (int i = 0; i < LANES.length; i++)
+            LANES[i] = Schedulers.newFocessScheduler(FocessQQ.getMainPlugin(), "EventLane-" + i);
     }
 
+    private static final EventIngress INGRESS = EventIngress.newEventIngress(event -> DispatchPlan.of(event.getClass()).submit(event));
+
+    private static final Scheduler SCHEDULER = Schedulers.newInternalScheduler(FocessQQ.getMainPlugin(), 10, false, "EventManager");
+
     /**
-     * Submit the event to all of its implemented super event class
+     * Submit the event to all of its implemented super event class and wait for all the listeners, but no more than 10 seconds
      *
      * @param event the event need to be submitted
      * @param <T>   the event type
      * @throws EventSubmitException if class of this event is abstract or there is no LISTENER_HANDLER in this event
+     * @see #submitAsync(Event)
      */
     public static <T extends Event> void submit(final T event) throws EventSubmitException {
         Permission.checkPermission(Permission.EVENT_SUBMIT);
-        final Task task = SCHEDULER.run(() -> {
-            try {
-                submit(cast(event.getClass()), event);
-            } catch (final EventSubmitException e) {
-                throw new EventSubmitRuntimeException(e);
+        final FlightEvents.EventSubmit jfr = FlightEvents.AVAILABLE ? new FlightEvents.EventSubmit() : null;
+        if (jfr != null)
+            jfr.begin();
+        try {
+            submitAsync0(SCHEDULER, event).get(10, TimeUnit.SECONDS);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof EventSubmitException)
+                throw (EventSubmitException) e.getCause();
+            FocessQQ.getLogger().thrLang("exception-submit-event", e);
+        } catch (final InterruptedException | CancellationException | TimeoutException e) {
+            FocessQQ.getLogger().thrLang("exception-submit-event", e);
+        } finally {
+            if (jfr != null) {
+                jfr.eventClass = event.getClass();
+                jfr.commit();
             }
-        }, "submit-" + event.getClass().getName());
+        }
+    }
+
+    /**
+     * Submit the event to all of its implemented super event class without waiting for the listeners
+     *
+     * @param event the event need to be submitted
+     * @param <T>   the event type
+     * @return a CompletableFuture which is completed with the event after all the listeners finish, or completed exceptionally with {@link EventSubmitException} if class of this event is abstract or there is no LISTENER_HANDLER in this event, or completed with null if the event is dropped by the {@link IngressPolicy}
+     */
+    @NotNull
+    public static <T extends Event> CompletableFuture<T> submitAsync(final T event) {
+        Permission.checkPermission(Permission.EVENT_SUBMIT);
+        return INGRESS.submit(SCHEDULER, event);
+    }
+
+    /**
+     * Submit the event to all of its implemented super event class in the execution lane of the key without waiting for the listeners.
+     * The events with the same key are handled one by one in submission order, while the events with different keys are handled in parallel.
+     *
+     * The lanes are striped by the hash of the key, and there is one lane per available processor. So the events with different keys may share one lane,
+     * and a slow listener delays all the keys in its lane, not only its own key. It keeps the count of threads fixed no matter how many keys there are.
+     *
+     * Note: never wait for an event submitted to the same key in a listener, because the lane is occupied by the listener itself.
+     *
+     * @param key   the key of the lane, for example the group id, the friend id or the CommandSender
+     * @param event the event need to be submitted
+     * @param <T>   the event type
+     * @return a CompletableFuture which is completed with the event after all the listeners finish, or completed exceptionally with {@link EventSubmitException} if class of this event is abstract or there is no LISTENER_HANDLER in this event, or completed with null if the event is dropped by the {@link IngressPolicy}
+     */
+    @NotNull
+    public static <T extends Event> CompletableFuture<T> submitAsync(@NotNull final Object key, final T event) {
+        Permission.checkPermission(Permission.EVENT_SUBMIT);
+        final int hash = key.hashCode();
+        return INGRESS.submit(LANES[Math.floorMod(hash ^ (hash >>> 16), LANES.length)], event);
+    }
+
+    @NotNull
+    private static <T extends Event> CompletableFuture<T> submitAsync0(final Scheduler scheduler, final T event) {
+        final CompletableFuture<T> future = new CompletableFuture<>();
         try {
-            task.join(10, TimeUnit.SECONDS);
-        } catch (final ExecutionException | InterruptedException | CancellationException | TimeoutException e) {
-            if (e.getCause() instanceof EventSubmitRuntimeException)
-                throw (EventSubmitException) e.getCause().getCause();
-            else FocessQQ.getLogger().thrLang("exception-submit-event",e);
+            scheduler.run(() -> INGRESS.dispatch(event, future), "submit-" + event.getClass().getName());
+        } catch (final Exception e) {
+            future.completeExceptionally(e);
         }
+        return future;
     }
 
-    private static <T extends Event> void submit(@NotNull final Class<T> cls, final T event) throws EventSubmitException {
-        if (!Modifier.isAbstract(cls.getModifiers())) {
-            ListenerHandler listenerHandler;
-            if ((listenerHandler = LISTENER_HANDLER_MAP.get(cls)) == null) {
-                try {
-                    final Field field = cls.getDeclaredField("LISTENER_HANDLER");
-                    final boolean flag = field.canAccess(null);
-                    field.setAccessible(true);
-                    listenerHandler = (ListenerHandler) field.get(null);
-                    field.setAccessible(flag);
-                    LISTENER_HANDLER_MAP.put(cls, listenerHandler);
-                } catch (final Exception e) {
-                    throw new EventSubmitException(event, "This event doesn't contain a LISTENER_HANDLER field.");
-                }
-            }
-            listenerHandler.submit(event);
-            Class<?> c = cls;
-            while (!(c = c.getSuperclass()).equals(Event.class))
-                trySubmitOnce(cast(c), event);
-        } else throw new EventSubmitException(event, "This event is an abstract class.");
+    /**
+     * Get the count of the asynchronous events which are submitted but not finished
+     *
+     * @return the depth of the ingress queue
+     */
+    public static int getIngressDepth() {
+        return INGRESS.getDepth();
     }
 
-    private static <T extends Event> void trySubmitOnce(final Class<T> cls, final T event) throws EventSubmitException {
-        submitOnce(cls, event);
+    /**
+     * Get the capacity of the ingress queue. It is set by the startup option --ingress &lt;capacity&gt; &lt;policy&gt;
+     *
+     * @return the capacity of the ingress queue
+     */
+    public static int getIngressCapacity() {
+        return INGRESS.getCapacity();
     }
 
-    private static <T extends Event> void submitOnce(@NotNull final Class<T> cls, final T event) throws EventSubmitException {
-        if (!Modifier.isAbstract(cls.getModifiers())) {
-            ListenerHandler listenerHandler;
-            if ((listenerHandler = LISTENER_HANDLER_MAP.get(cls)) == null) {
-                try {
-                    final Field field = cls.getDeclaredField("LISTENER_HANDLER");
-                    final boolean flag = field.canAccess(null);
-                    field.setAccessible(true);
-                    listenerHandler = (ListenerHandler) field.get(null);
-                    field.setAccessible(flag);
-                    LISTENER_HANDLER_MAP.put(cls, listenerHandler);
-                } catch (final Exception e) {
-                    throw new EventSubmitException(event, "This event doesn't contain a LISTENER_HANDLER field.");
-                }
-            }
-            listenerHandler.submit(event);
-        } else throw new EventSubmitException(event, "This event is an abstract class.");
+    /**
+     * Get the ingress policy of the events which are not chat or message events. It is set by the startup option --ingress &lt;capacity&gt; &lt;policy&gt;
+     *
+     * @return the ingress policy of the events which are not chat or message events
+     */
+    @NotNull
+    public static IngressPolicy getIngressPolicy() {
+        return INGRESS.getPolicy();
     }
 
-    private static class EventSubmitRuntimeException extends RuntimeException {
+    /**
+     * Get the ingress policy of the chat and message events. It is {@link IngressPolicy#DROP_OLDEST} by default, or the same as the other events if the startup option --ingress &lt;capacity&gt; &lt;policy&gt; is given
+     *
+     * @return the ingress policy of the chat and message events
+     */
+    @NotNull
+    public static IngressPolicy getIngressMessagePolicy() {
+        return INGRESS.getMessagePolicy();
+    }
 
-        public EventSubmitRuntimeException(final EventSubmitException e) {
-            super(e);
-        }
+    /**
+     * Get the count of the asynchronous events dropped by the ingress policy
+     *
+     * @return the count of the dropped events
+     */
+    public static long getIngressDropped() {
+        return INGRESS.getDropped();
     }
 
+    /**
+     * Get the count of the asynchronous events dropped by the ingress policy for each event class
+     *
+     * @return the count of the dropped events for each event class
+     */
+    @NotNull
+    public static Map<Class<?>, Long> getIngressDroppedByType() {
+        return INGRESS.getDroppedByType();
+    }
 }
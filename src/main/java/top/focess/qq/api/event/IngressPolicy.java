@@ -0,0 +1,28 @@
+package top.focess.qq.api.event;
+
+/**
+ * This class is used to define what EventManager does when the bounded ingress queue of asynchronous events is full
+ */
+public enum IngressPolicy {
+
+    /**
+     * Block the submitting thread until there is room in the queue. Threads handling events are never blocked, their events are admitted directly.
+     */
+    BLOCK,
+
+    /**
+     * Drop the oldest queued event which has not been handled yet
+     */
+    DROP_OLDEST,
+
+    /**
+     * Drop the oldest queued event of the same type as the submitted event, or the oldest queued event if there is no such event
+     */
+    DROP_BY_TYPE,
+
+    /**
+     * Drop the submitted event, and echo one of every hundred dropped events to the console
+     */
+    SAMPLE
+
+}
@@ -2,18 +2,33 @@ package top.focess.qq.api.event;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import top.focess.qq.FocessQQ;
 import top.focess.qq.api.plugin.Plugin;
+import top.focess.qq.api.scheduler.Schedulers;
+import top.focess.qq.core.event.BatchListener;
+import top.focess.qq.core.event.RegisteredListener;
+import top.focess.qq.core.jfr.FlightEvents;
 import top.focess.qq.core.permission.Permission;
 import top.focess.qq.core.permission.PermissionEnv;
-import top.focess.util.Pair;
+import top.focess.qq.core.plugin.PluginCoreClassLoader;
+import top.focess.qq.core.util.Trace;
+import top.focess.scheduler.Scheduler;
+import top.focess.scheduler.Task;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * This class is used to help invoke listener methods
@@ -22,12 +37,18 @@ import java.util.Map;
 public class ListenerHandler {
 
     static final Map<Listener, Plugin> LISTENER_PLUGIN_MAP = Maps.newConcurrentMap();
-    //only access in classloader, classloader is in lock process
-    private static final List<ListenerHandler> LISTENER_HANDLER_LIST = Lists.newArrayList();
+    //modified only in classloader, classloader is in lock process
+    private static final List<ListenerHandler> LISTENER_HANDLER_LIST = Lists.newCopyOnWriteArrayList();
     private static final Map<Plugin, List<Listener>> PLUGIN_LISTENER_MAP = Maps.newConcurrentMap();
-    //listeners only in one ListenerHandler, and one ListenerHandler is only accessed by synchronized
+    //the ListenerHandlers which the listener is registered in
+    private static final Map<Listener, Set<ListenerHandler>> LISTENER_HANDLERS_MAP = Maps.newConcurrentMap();
 
-    protected final List<Pair<Pair<Listener,Method>, EventHandler>> listeners = Lists.newCopyOnWriteArrayList();
+    private static final Comparator<RegisteredListener> PRIORITY_COMPARATOR = Comparator.comparingInt(i -> i.getHandler().priority().getPriority());
+
+    //the snapshots are never modified after published, and they are only replaced in synchronized methods
+    private volatile RegisteredListener[] listeners = new RegisteredListener[0];
+
+    private volatile BatchListener[] batchListeners = new BatchListener[0];
 
     public ListenerHandler() {
         LISTENER_HANDLER_LIST.add(this);
@@ -38,7 +59,19 @@ public class ListenerHandler {
      * @return the listener handler list
      */
     public int size() {
-        return this.listeners.size();
+        return this.listeners.length + this.batchListeners.length;
+    }
+
+    /**
+     * Get all the registered listener methods
+     *
+     * @return all the registered listener methods
+     */
+    public static List<RegisteredListener> getRegisteredListeners() {
+        final List<RegisteredListener> ret = Lists.newArrayList();
+        for (final ListenerHandler handler : LISTENER_HANDLER_LIST)
+            Collections.addAll(ret, handler.listeners);
+        return ret;
     }
 
     /**
@@ -48,13 +81,16 @@ public class ListenerHandler {
      */
     public static void unregister(final Plugin plugin) {
         Permission.checkPermission(Permission.REMOVE_LISTENER);
-        final List<Listener> listeners = PLUGIN_LISTENER_MAP.getOrDefault(plugin, Lists.newArrayList());
-        for (final ListenerHandler handler : LISTENER_HANDLER_LIST)
-            for (final Listener listener : listeners) {
-                LISTENER_PLUGIN_MAP.remove(listener);
-                handler.unregister(listener);
-            }
-        PLUGIN_LISTENER_MAP.remove(plugin);
+        final List<Listener> listeners = PLUGIN_LISTENER_MAP.remove(plugin);
+        if (listeners == null)
+            return;
+        boolean changed = false;
+        for (final Listener listener : listeners) {
+            LISTENER_PLUGIN_MAP.remove(listener);
+            changed |= remove(listener);
+        }
+        if (changed)
+            DispatchPlan.invalidate();
     }
 
     /**
@@ -69,11 +105,27 @@ public class ListenerHandler {
             v.remove(listener);
             return v;
         });
-        for (final ListenerHandler handler : LISTENER_HANDLER_LIST)
-            handler.unregister(listener);
+        if (remove(listener))
+            DispatchPlan.invalidate();
         LISTENER_PLUGIN_MAP.remove(listener);
     }
 
+    /**
+     * Remove the listener from all the ListenerHandlers it is registered in
+     *
+     * @param listener the listener
+     * @return true if the listener is removed from any ListenerHandler, false otherwise
+     */
+    private static boolean remove(final Listener listener) {
+        final Set<ListenerHandler> handlers = LISTENER_HANDLERS_MAP.remove(listener);
+        if (handlers == null)
+            return false;
+        boolean changed = false;
+        for (final ListenerHandler handler : handlers)
+            changed |= handler.remove0(listener);
+        return changed;
+    }
+
     /**
      * Add the listener and bundle to the plugin
      *
@@ -89,25 +141,57 @@ public class ListenerHandler {
             return v;
         });
         LISTENER_PLUGIN_MAP.put(listener, plugin);
+        final Map<ListenerHandler, List<RegisteredListener>> listeners = Maps.newHashMap();
+        final Map<ListenerHandler, List<BatchListener>> batchListeners = Maps.newHashMap();
         for (final Method method : listener.getClass().getDeclaredMethods()) {
             final EventHandler handler;
             if ((handler = method.getAnnotation(EventHandler.class)) != null) {
                 if (method.getParameterTypes().length == 1) {
-                    final Class<?> eventClass = method.getParameterTypes()[0];
-                    if (Event.class.isAssignableFrom(eventClass) && !Modifier.isAbstract(eventClass.getModifiers())) {
-                        try {
-                            final Field field = eventClass.getDeclaredField("LISTENER_HANDLER");
-                            final boolean flag = field.canAccess(null);
-                            field.setAccessible(true);
-                            final ListenerHandler listenerHandler = (ListenerHandler) field.get(null);
-                            field.setAccessible(flag);
-                            listenerHandler.register(listener, method, handler);
-                        } catch (final Exception ignored) {
-                        }
+                    final ListenerHandler listenerHandler = getListenerHandler(method.getParameterTypes()[0]);
+                    if (listenerHandler != null)
+                        listeners.computeIfAbsent(listenerHandler, k -> Lists.newArrayList()).add(new RegisteredListener(listener, method, handler));
+                }
+            }
+            final BatchEventHandler batchHandler;
+            if ((batchHandler = method.getAnnotation(BatchEventHandler.class)) != null) {
+                if (method.getParameterTypes().length == 1 && method.getParameterTypes()[0].equals(List.class)) {
+                    final Type type = method.getGenericParameterTypes()[0];
+                    if (type instanceof ParameterizedType && ((ParameterizedType) type).getActualTypeArguments()[0] instanceof Class) {
+                        final ListenerHandler listenerHandler = getListenerHandler((Class<?>) ((ParameterizedType) type).getActualTypeArguments()[0]);
+                        if (listenerHandler != null)
+                            batchListeners.computeIfAbsent(listenerHandler, k -> Lists.newArrayList()).add(new BatchListener(listener, method, batchHandler));
                     }
                 }
             }
         }
+        // publish one snapshot per ListenerHandler for all the methods of this listener
+        final Set<ListenerHandler> handlers = Sets.union(listeners.keySet(), batchListeners.keySet());
+        if (handlers.isEmpty())
+            return;
+        for (final ListenerHandler listenerHandler : handlers)
+            listenerHandler.add(listener, listeners.getOrDefault(listenerHandler, Collections.emptyList()), batchListeners.getOrDefault(listenerHandler, Collections.emptyList()));
+        DispatchPlan.invalidate();
+    }
+
+    /**
+     * Get the ListenerHandler of the event class
+     *
+     * @param eventClass the event class
+     * @return the ListenerHandler of the event class, or null if the class is not an implemented Event or there is no LISTENER_HANDLER in it
+     */
+    static ListenerHandler getListenerHandler(final Class<?> eventClass) {
+        if (!Event.class.isAssignableFrom(eventClass) || Modifier.isAbstract(eventClass.getModifiers()))
+            return null;
+        try {
+            final Field field = eventClass.getDeclaredField("LISTENER_HANDLER");
+            final boolean flag = field.canAccess(null);
+            field.setAccessible(true);
+            final ListenerHandler listenerHandler = (ListenerHandler) field.get(null);
+            field.setAccessible(flag);
+            return listenerHandler;
+        } catch (final Exception e) {
+            return null;
+        }
     }
 
     /**
@@ -134,11 +218,16 @@ public class ListenerHandler {
      */
     public void unregister(final Listener listener) {
         Permission.checkPermission(Permission.REMOVE_LISTENER);
-        this.listeners.removeIf(i -> i.getKey().getKey().equals(listener));
+        LISTENER_HANDLERS_MAP.computeIfPresent(listener, (k, v) -> {
+            v.remove(this);
+            return v.isEmpty() ? null : v;
+        });
+        if (this.remove0(listener))
+            DispatchPlan.invalidate();
     }
 
     /**
-     * Register the listener
+     * Register the listener. The listener method is compiled into a direct invoker here, so submitting an event does not need reflection.
      *
      * @param listener the listener
      * @param method   the listener method to this Event listener handler
@@ -146,8 +235,95 @@ public class ListenerHandler {
      * @param <T>      the event type
      */
     public <T extends Event> void register(final Listener listener, final Method method, final EventHandler handler) {
-        this.listeners.add(Pair.of(Pair.of(listener,method), handler));
-        this.listeners.sort(Comparator.comparing(pair -> pair.getValue().priority().getPriority()));
+        this.add(listener, Collections.singletonList(new RegisteredListener(listener, method, handler)), Collections.emptyList());
+        DispatchPlan.invalidate();
+    }
+
+    /**
+     * Register the batch listener
+     *
+     * @param listener the listener
+     * @param method   the batch listener method to this Event listener handler
+     * @param handler  the batch event handler
+     */
+    public void registerBatch(final Listener listener, final Method method, final BatchEventHandler handler) {
+        this.add(listener, Collections.emptyList(), Collections.singletonList(new BatchListener(listener, method, handler)));
+        DispatchPlan.invalidate();
+    }
+
+    /**
+     * Merge the listener methods into the snapshots and publish them at once
+     *
+     * @param listener       the listener
+     * @param listeners      the listener methods of the listener
+     * @param batchListeners the batch listener methods of the listener
+     */
+    private synchronized void add(final Listener listener, final List<RegisteredListener> listeners, final List<BatchListener> batchListeners) {
+        LISTENER_HANDLERS_MAP.computeIfAbsent(listener, k -> Sets.newConcurrentHashSet()).add(this);
+        if (!listeners.isEmpty()) {
+            final RegisteredListener[] added = listeners.toArray(new RegisteredListener[0]);
+            // stable sort, so the listeners with the same priority are kept in registration order
+            Arrays.sort(added, PRIORITY_COMPARATOR);
+            final RegisteredListener[] old = this.listeners;
+            final RegisteredListener[] merged = new RegisteredListener[old.length + added.length];
+            int i = 0, j = 0, k = 0;
+            while (i < old.length && j < added.length)
+                merged[k++] = PRIORITY_COMPARATOR.compare(added[j], old[i]) < 0 ? added[j++] : old[i++];
+            while (i < old.length)
+                merged[k++] = old[i++];
+            while (j < added.length)
+                merged[k++] = added[j++];
+            this.listeners = merged;
+        }
+        if (!batchListeners.isEmpty()) {
+            final BatchListener[] old = this.batchListeners;
+            final BatchListener[] merged = Arrays.copyOf(old, old.length + batchListeners.size());
+            for (int i = 0; i < batchListeners.size(); i++)
+                merged[old.length + i] = batchListeners.get(i);
+            this.batchListeners = merged;
+        }
+    }
+
+    /**
+     * Remove the listener methods of the listener from the snapshots and publish them at once. The removed batch listener methods are closed after their pending batches are delivered.
+     *
+     * @param listener the listener
+     * @return true if any listener method is removed, false otherwise
+     */
+    private boolean remove0(final Listener listener) {
+        final List<BatchListener> removed = Lists.newArrayList();
+        final boolean changed;
+        synchronized (this) {
+            final RegisteredListener[] listeners = Arrays.stream(this.listeners).filter(i -> !i.getListener().equals(listener)).toArray(RegisteredListener[]::new);
+            for (final BatchListener batchListener : this.batchListeners)
+                if (batchListener.getListener().equals(listener))
+                    removed.add(batchListener);
+            changed = listeners.length != this.listeners.length || !removed.isEmpty();
+            this.listeners = listeners;
+            if (!removed.isEmpty())
+                this.batchListeners = Arrays.stream(this.batchListeners).filter(i -> !removed.contains(i)).toArray(BatchListener[]::new);
+        }
+        for (final BatchListener batchListener : removed)
+            batchListener.close();
+        return changed;
+    }
+
+    /**
+     * Get the snapshot of the batch listeners
+     *
+     * @return the snapshot of the batch listeners
+     */
+    BatchListener[] getBatchListeners() {
+        return this.batchListeners;
+    }
+
+    /**
+     * Get the snapshot of the listeners sorted by priority
+     *
+     * @return the snapshot of the listeners
+     */
+    RegisteredListener[] getListeners() {
+        return this.listeners;
     }
 
     /**
@@ -157,25 +333,104 @@ public class ListenerHandler {
      * @param <T>   the event type
      */
     public <T extends Event> void submit(final T event) {
-        this.listeners.forEach(
-            i -> {
-                if (event.isPrevent() && i.getValue().notCallIfPrevented()) {
-                    FocessQQ.getLogger().debugLang("debug-prevent-event", event.toString(),  i.toString());
-                    return;
-                }
-                if (event instanceof Cancellable && ((Cancellable) event).isCancelled() && i.getValue().notCallIfCancelled()) {
-                    FocessQQ.getLogger().debugLang("debug-cancel-event", event.toString(),  i.toString());
-                    return;
-                }
-                FocessQQ.getLogger().debugLang("debug-submit-event", event.toString(),  i.toString());
-                final Method method = i.getKey().getValue();
-                try {
-                    method.setAccessible(true);
-                    method.invoke(i.getKey().getKey(), event);
-                } catch (final Exception e) {
-                    FocessQQ.getLogger().thrLang("exception-handle-event", e, event.getClass().getName());
+        submit(this.getListeners(), event);
+        offer(this.getBatchListeners(), event);
+    }
+
+    /**
+     * Offer the event to the batch listeners. It should be called after the event is submitted to all the normal listeners.
+     *
+     * @param batchListeners the batch listeners
+     * @param event          the event need to be gathered
+     */
+    static void offer(final BatchListener[] batchListeners, final Event event) {
+        for (final BatchListener i : batchListeners) {
+            if (event.isPrevent() && i.getHandler().notCallIfPrevented())
+                continue;
+            if (event instanceof Cancellable && ((Cancellable) event).isCancelled() && i.getHandler().notCallIfCancelled())
+                continue;
+            i.offer(event);
+        }
+    }
+
+    /**
+     * Submit the event to the listeners in order
+     *
+     * @param listeners the listeners sorted by priority
+     * @param event     the event need to be submitted
+     */
+    static void submit(final RegisteredListener[] listeners, final Event event) {
+        final boolean debug = FocessQQ.getLogger().isDebugOutput();
+        final boolean traced = Trace.current() != null;
+        for (final RegisteredListener i : listeners) {
+            if (event.isPrevent() && i.getHandler().notCallIfPrevented()) {
+                if (debug)
+                    FocessQQ.getLogger().debugLang("debug-prevent-event", event.toString(), i.toString());
+                continue;
+            }
+            if (event instanceof Cancellable && ((Cancellable) event).isCancelled() && i.getHandler().notCallIfCancelled()) {
+                if (debug)
+                    FocessQQ.getLogger().debugLang("debug-cancel-event", event.toString(), i.toString());
+                continue;
+            }
+            if (debug)
+                FocessQQ.getLogger().debugLang("debug-submit-event", event.toString(), i.toString());
+            final FlightEvents.ListenerInvoke jfr = FlightEvents.AVAILABLE ? new FlightEvents.ListenerInvoke() : null;
+            if (jfr != null)
+                jfr.begin();
+            final long start = System.nanoTime();
+            if (i.getHandler().timeout() > 0)
+                invokeIsolated(i, event, i.getHandler().timeout());
+            else try {
+                i.invoke(event);
+            } catch (final Throwable e) {
+                FocessQQ.getLogger().thrLang("exception-handle-event", e, event.getClass().getName());
+            }
+            i.getLatency().record(System.nanoTime() - start);
+            if (jfr != null) {
+                jfr.end();
+                if (jfr.shouldCommit()) {
+                    jfr.eventClass = event.getClass();
+                    jfr.listener = i.toString();
+                    final Plugin plugin = PluginCoreClassLoader.getPluginByClass(i.getListener().getClass());
+                    jfr.plugin = plugin == null ? null : plugin.getName();
+                    jfr.commit();
                 }
             }
-        );
+            if (traced)
+                Trace.record("listener", i, start);
+        }
+    }
+
+    /**
+     * Invoke the listener in an isolated thread, and abandon it if it runs over the timeout
+     *
+     * @param listener the listener
+     * @param event    the event need to be submitted
+     * @param timeout  the timeout in milliseconds
+     */
+    private static void invokeIsolated(final RegisteredListener listener, final Event event, final long timeout) {
+        final Task task = Isolation.SCHEDULER.run(() -> {
+            try {
+                listener.invoke(event);
+            } catch (final Throwable e) {
+                FocessQQ.getLogger().thrLang("exception-handle-event", e, event.getClass().getName());
+            }
+        }, "listener-" + listener);
+        try {
+            task.join(timeout, TimeUnit.MILLISECONDS);
+        } catch (final TimeoutException e) {
+            task.cancel();
+            FocessQQ.getLogger().thrLang("exception-listener-timeout", e, listener.toString(), event.getClass().getName(), timeout);
+        } catch (final Exception e) {
+            FocessQQ.getLogger().thrLang("exception-handle-event", e, event.getClass().getName());
+        }
+    }
+
+    /**
+     * Lazily create the scheduler running the listeners with timeout
+     */
+    private static class Isolation {
+        private static final Scheduler SCHEDULER = Schedulers.newElasticScheduler(FocessQQ.getMainPlugin(), "ListenerIsolation");
     }
 }
@@ -3,6 +3,7 @@ package top.focess.qq.api.plugin;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.UnmodifiableView;
 import top.focess.command.InputTimeoutException;
 import top.focess.qq.FocessQQ;
 import top.focess.qq.api.util.IOHandler;
@@ -13,6 +14,7 @@ import top.focess.util.yaml.YamlConfiguration;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -61,8 +63,21 @@ public class PluginDescription {
 
     private final Map<Permission, Boolean> permissions = Maps.newHashMap();
 
+    /**
+     * The mask of all the leaf permissions granted to the plugin. It is recomputed whenever the permissions are changed.
+     */
+    private volatile long grantedMask;
+
+    /**
+     * Get the permissions of the plugin
+     *
+     * Note: the returned map is unmodifiable, use {@link #addPermission(Permission)} to grant a permission
+     *
+     * @return the permissions and whether they are granted
+     */
+    @UnmodifiableView
     public Map<Permission, Boolean> getPermissions() {
-        return permissions;
+        return Collections.unmodifiableMap(this.permissions);
     }
 
     private static YamlConfiguration permissionsConfig;
@@ -105,8 +120,10 @@ public class PluginDescription {
                 permissions.remove(permission);
             }
         }
-        if (permissions.isEmpty())
+        if (permissions.isEmpty()) {
+            this.updateGrantedMask();
             return;
+        }
         Option option = FocessQQ.getOptions().get("allowAll");
         Boolean isAll = null;
         if (option != null)
@@ -153,6 +170,7 @@ public class PluginDescription {
         permissionsStatus.setList("yes", yeses);
         permissionsStatus.setList("no", nos);
         permissionsConfig.save(new File("plugins/Main", "permissions.yml"));
+        this.updateGrantedMask();
     }
 
     PluginDescription() {
@@ -165,6 +183,7 @@ public class PluginDescription {
         this.requireVersion = FocessQQ.getVersion();
         this.limitVersion = FocessQQ.getVersion();
         this.permissions.put(Permission.ALL, true);
+        this.updateGrantedMask();
         try {
             File file = new File("plugins/Main", "permissions.yml");
             if (!file.exists())
@@ -209,15 +228,20 @@ public class PluginDescription {
     }
 
     public boolean hasPermission(Permission permission) {
-        for (Permission p : permissions.keySet())
-            if (permissions.get(p))
-                if (p.hasPermission(permission))
-                    return true;
-        return false;
+        return (this.grantedMask & permission.getBit()) != 0;
+    }
+
+    private void updateGrantedMask() {
+        long mask = 0;
+        for (Map.Entry<Permission, Boolean> entry : this.permissions.entrySet())
+            if (entry.getValue())
+                mask |= entry.getKey().getMask();
+        this.grantedMask = mask;
     }
 
     public boolean addPermission(Permission permission) {
         this.permissions.put(permission, true);
+        this.updateGrantedMask();
         YamlConfiguration permissionsStatus = permissionsConfig.getSection(this.name);
         List<String> yeses = permissionsStatus.getListOrEmpty("yes");
         List<String> nos = permissionsStatus.getListOrEmpty("no");
@@ -93,6 +93,65 @@ public class Schedulers {
         return new AScheduler(plugin,scheduler);
     }
 
+    /**
+     * New an elastic ThreadPoolScheduler, the scheduler can run tasks in parallel.
+     * It keeps one thread per available processor and starts a new thread immediately when all of them are busy, so tasks blocked on input or I/O never delay the next task.
+     * As a result, the task running in this scheduler can be cancelled if it is already running.
+     *
+     * @param plugin the plugin
+     * @param name   the scheduler name
+     * @return an elastic ThreadPoolScheduler
+     * @see Schedulers#newThreadPoolScheduler(Plugin, int, boolean, String)
+     */
+    @NotNull
+    @Contract("_, _ -> new")
+    public static Scheduler newElasticScheduler(@NotNull final Plugin plugin, @NotNull final String name) {
+        Permission.checkPermission(Permission.SCHEDULER);
+        return newElasticScheduler(plugin, 1, name);
+    }
+
+    /**
+     * New an elastic ThreadPoolScheduler, the scheduler can run tasks in parallel.
+     * It keeps at least the pool size threads and one thread per available processor, and starts a new thread immediately when all of them are busy.
+     * As a result, the task running in this scheduler can be cancelled if it is already running.
+     *
+     * @param plugin   the plugin
+     * @param poolSize the min thread pool size
+     * @param name     the scheduler name
+     * @return an elastic ThreadPoolScheduler
+     * @see Schedulers#newElasticScheduler(Plugin, String)
+     */
+    @NotNull
+    @Contract("_, _, _ -> new")
+    public static Scheduler newElasticScheduler(@NotNull final Plugin plugin, final int poolSize, @NotNull final String name) {
+        Permission.checkPermission(Permission.SCHEDULER);
+        final ThreadPoolScheduler scheduler = new ThreadPoolScheduler(Math.max(poolSize, Runtime.getRuntime().availableProcessors()), true, name);
+        scheduler.setThreadUncaughtExceptionHandler((t, e) -> FocessQQ.getLogger().thrLang("exception-thread-pool-scheduler-thread-uncaught", e, t.getName()));
+        return new AScheduler(plugin, scheduler);
+    }
+
+    /**
+     * New a scheduler for the internal tasks of the framework.
+     * It is an elastic ThreadPoolScheduler keeping at least the pool size threads if the option --elasticScheduler is given, otherwise it is a ThreadPoolScheduler with the pool size.
+     *
+     * @param plugin    the plugin
+     * @param poolSize  the thread pool size, or the min thread pool size if the scheduler is elastic
+     * @param immediate true if the task should run immediately when there is not enough threads, false otherwise. It is ignored if the scheduler is elastic
+     * @param name      the scheduler name
+     * @return an elastic ThreadPoolScheduler or a ThreadPoolScheduler
+     * @see FocessQQ#isElasticScheduler()
+     * @see Schedulers#newElasticScheduler(Plugin, int, String)
+     * @see Schedulers#newThreadPoolScheduler(Plugin, int, boolean, String)
+     */
+    @NotNull
+    @Contract("_, _, _, _ -> new")
+    public static Scheduler newInternalScheduler(@NotNull final Plugin plugin, final int poolSize, final boolean immediate, @NotNull final String name) {
+        Permission.checkPermission(Permission.SCHEDULER);
+        if (FocessQQ.isElasticScheduler())
+            return newElasticScheduler(plugin, poolSize, name);
+        return newThreadPoolScheduler(plugin, poolSize, immediate, name);
+    }
+
     /**
      * Close all the schedulers belonging to the plugin
      *
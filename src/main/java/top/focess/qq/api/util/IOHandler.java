@@ -25,7 +25,7 @@ public abstract class IOHandler extends top.focess.command.IOHandler {
 
     protected static final Scheduler SCHEDULER = Schedulers.newFocessScheduler(FocessQQ.getMainPlugin(),"Input");
 
-    private static final Scheduler ASYNC_SCHEDULER = Schedulers.newThreadPoolScheduler(FocessQQ.getMainPlugin(),5,true,"IOHandler");
+    private static final Scheduler ASYNC_SCHEDULER = Schedulers.newInternalScheduler(FocessQQ.getMainPlugin(), 5, true, "IOHandler");
 
     /**
      * Console input and output handler
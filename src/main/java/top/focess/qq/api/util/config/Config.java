@@ -1,6 +1,7 @@
 package top.focess.qq.api.util.config;
 
 import org.checkerframework.checker.nullness.qual.Nullable;
+import top.focess.qq.core.util.FileAccessGuard;
 import top.focess.util.yaml.YamlConfiguration;
 import top.focess.util.yaml.YamlLoadException;
 
@@ -24,8 +25,11 @@ public abstract class Config {
      *
      * @param file the file
      * @throws YamlLoadException if the  file is not a valid yaml file
+     * @throws top.focess.qq.core.permission.PermissionException if the plugin cannot access the file
      */
     protected Config(@Nullable final File file) throws YamlLoadException {
+        if (file != null)
+            FileAccessGuard.checkAccess(file);
         this.file = file;
         this.yaml = this.file != null && this.file.exists() ? YamlConfiguration.loadFile(file) : new YamlConfiguration(null);
     }
@@ -90,10 +94,12 @@ public abstract class Config {
      * Save the configuration to the file
      *
      * @throws UnsupportedOperationException if the configuration is not loaded from a file
+     * @throws top.focess.qq.core.permission.PermissionException if the plugin cannot access the file
      */
     protected void save() {
         if (this.file == null)
             throw new UnsupportedOperationException("File is null");
+        FileAccessGuard.checkAccess(this.file);
         this.yaml.save(this.file);
     }
 
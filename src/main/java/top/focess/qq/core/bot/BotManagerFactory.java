@@ -6,6 +6,7 @@ import org.checkerframework.checker.nullness.qual.Nullable;
 import top.focess.qq.api.bot.BotManager;
 import top.focess.qq.api.plugin.Plugin;
 import top.focess.qq.core.bot.mirai.MiraiBotManager;
+import top.focess.qq.core.bot.synthetic.SyntheticBotManager;
 import top.focess.qq.core.permission.Permission;
 import top.focess.qq.core.permission.PermissionEnv;
 
@@ -23,6 +24,7 @@ public class BotManagerFactory {
 
     static {
         register("mirai", MiraiBotManager::new);
+        register("synthetic", SyntheticBotManager::new);
     }
 
     public static void register(final String name, final Supplier<BotManager> supplier) {
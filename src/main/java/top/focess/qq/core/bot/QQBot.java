@@ -6,8 +6,10 @@ import top.focess.qq.api.bot.BotLoginException;
 import top.focess.qq.api.bot.BotManager;
 import top.focess.qq.api.bot.BotProtocol;
 import top.focess.qq.api.plugin.Plugin;
+import top.focess.qq.core.metrics.Metrics;
 
 import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
 
 public abstract class QQBot implements Bot {
 
@@ -16,6 +18,7 @@ public abstract class QQBot implements Bot {
     private final Plugin plugin;
     private final BotManager botManager;
     private final BotProtocol botProtocol;
+    private final LongAdder sentMessages;
 
     public QQBot(final long username, final String password, final Plugin plugin, final BotProtocol botProtocol, final BotManager botManager) {
         this.username = username;
@@ -23,6 +26,14 @@ public abstract class QQBot implements Bot {
         this.plugin = plugin;
         this.botManager = botManager;
         this.botProtocol = botProtocol;
+        this.sentMessages = Metrics.counter("focess_bot_sent_messages_total", "The count of the messages sent by the bot", "bot", String.valueOf(username));
+    }
+
+    /**
+     * Count one message sent by this bot
+     */
+    protected void recordSentMessage() {
+        this.sentMessages.increment();
     }
 
     @Override
@@ -21,6 +21,8 @@ import top.focess.qq.core.bot.contact.*;
 import top.focess.qq.core.bot.mirai.message.MiraiAudio;
 import top.focess.qq.core.bot.mirai.message.MiraiImage;
 import top.focess.qq.core.bot.mirai.message.MiraiMessageUtil;
+import top.focess.qq.core.jfr.FlightEvents;
+import top.focess.qq.core.util.Trace;
 import top.focess.util.Pair;
 
 import java.io.IOException;
@@ -110,20 +112,39 @@ public class MiraiBot extends QQBot {
         final net.mamoe.mirai.message.data.Message mess = MiraiMessageUtil.toNativeMessage(message);
         if (mess == null)
             return;
-        if (transmitter instanceof Group) {
-            final net.mamoe.mirai.contact.Group group = this.nativeBot.getGroupOrFail(transmitter.getId());
-            group.sendMessage(mess);
-        } else if (transmitter instanceof Friend) {
-            final net.mamoe.mirai.contact.Friend friend = this.nativeBot.getFriendOrFail(transmitter.getId());
-            friend.sendMessage(mess);
-        } else if (transmitter instanceof Stranger) {
-            final net.mamoe.mirai.contact.Stranger stranger = this.nativeBot.getStrangerOrFail(transmitter.getId());
-            stranger.sendMessage(mess);
+        final FlightEvents.MessageSend jfr = FlightEvents.AVAILABLE ? new FlightEvents.MessageSend() : null;
+        if (jfr != null)
+            jfr.begin();
+        try (Trace.Span ignored = Trace.span("send-message", transmitter.getId())) {
+            if (transmitter instanceof Group) {
+                final net.mamoe.mirai.contact.Group group = this.nativeBot.getGroupOrFail(transmitter.getId());
+                group.sendMessage(mess);
+            } else if (transmitter instanceof Friend) {
+                final net.mamoe.mirai.contact.Friend friend = this.nativeBot.getFriendOrFail(transmitter.getId());
+                friend.sendMessage(mess);
+            } else if (transmitter instanceof Stranger) {
+                final net.mamoe.mirai.contact.Stranger stranger = this.nativeBot.getStrangerOrFail(transmitter.getId());
+                stranger.sendMessage(mess);
+            }
+        } finally {
+            if (jfr != null) {
+                jfr.bot = this.getId();
+                jfr.target = transmitter.getId();
+                jfr.commit();
+            }
         }
+        this.recordSentMessage();
     }
 
     @Override
     public @Nullable Image uploadImage(final Transmitter transmitter, final InputStream resource) {
+        final FlightEvents.MessageUpload jfr = FlightEvents.AVAILABLE ? new FlightEvents.MessageUpload() : null;
+        if (jfr != null) {
+            jfr.begin();
+            jfr.bot = this.getId();
+            jfr.target = transmitter.getId();
+            jfr.type = "image";
+        }
         try (ExternalResource externalResource = ExternalResource.create(resource)) {
             MiraiImage ret = null;
             if (transmitter instanceof Group) {
@@ -136,14 +157,26 @@ public class MiraiBot extends QQBot {
                 final net.mamoe.mirai.contact.Stranger stranger = this.nativeBot.getStrangerOrFail(transmitter.getId());
                 ret = new MiraiImage(stranger.uploadImage(externalResource));
             }
+            if (jfr != null)
+                jfr.succeeded = ret != null;
             return ret;
         } catch (IOException e) {
             return null;
+        } finally {
+            if (jfr != null)
+                jfr.commit();
         }
     }
 
     @Override
     public @Nullable Audio uploadAudio(final Speaker speaker, final InputStream inputStream) {
+        final FlightEvents.MessageUpload jfr = FlightEvents.AVAILABLE ? new FlightEvents.MessageUpload() : null;
+        if (jfr != null) {
+            jfr.begin();
+            jfr.bot = this.getId();
+            jfr.target = speaker.getId();
+            jfr.type = "audio";
+        }
         try (ExternalResource externalResource = ExternalResource.create(inputStream)) {
             MiraiAudio ret = null;
             if (speaker instanceof Friend) {
@@ -153,9 +186,14 @@ public class MiraiBot extends QQBot {
                 final net.mamoe.mirai.contact.Group group = this.nativeBot.getGroupOrFail(speaker.getId());
                 ret = new MiraiAudio(group.uploadAudio(externalResource));
             }
+            if (jfr != null)
+                jfr.succeeded = ret != null;
             return ret;
         } catch (IOException e) {
             return null;
+        } finally {
+            if (jfr != null)
+                jfr.commit();
         }
     }
 
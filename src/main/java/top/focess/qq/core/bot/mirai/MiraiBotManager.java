@@ -45,8 +45,10 @@ import top.focess.qq.core.bot.contact.SimpleMember;
 import top.focess.qq.core.bot.mirai.message.MiraiMessage;
 import top.focess.qq.core.bot.mirai.message.MiraiMessageChain;
 import top.focess.qq.core.bot.mirai.message.MiraiMessageSource;
+import top.focess.qq.core.jfr.FlightEvents;
 import top.focess.qq.core.permission.Permission;
 import top.focess.qq.core.permission.PermissionEnv;
+import top.focess.qq.core.util.Trace;
 import top.focess.scheduler.Scheduler;
 
 import javax.imageio.stream.FileImageOutputStream;
@@ -248,11 +250,22 @@ public class MiraiBotManager implements BotManager {
             }
         });
         final net.mamoe.mirai.Bot bot = BotFactory.INSTANCE.newBot(id, password.equalsIgnoreCase("qr") ? BotAuthorization.byQRCode() : BotAuthorization.byPassword(password), configuration);
+        final FlightEvents.BotLogin jfr = FlightEvents.AVAILABLE ? new FlightEvents.BotLogin() : null;
+        if (jfr != null) {
+            jfr.begin();
+            jfr.bot = id;
+            jfr.protocol = botProtocol.name();
+        }
         try {
             bot.login();
+            if (jfr != null)
+                jfr.succeeded = true;
         } catch (final Exception e) {
             bot.close();
             throw new BotLoginException(id, e);
+        } finally {
+            if (jfr != null)
+                jfr.commit();
         }
         return bot;
     }
@@ -266,93 +279,90 @@ public class MiraiBotManager implements BotManager {
         }
         final List<Listener<?>> listeners = Lists.newArrayList();
         listeners.add(bot.getEventChannel().subscribeAlways(GroupMessageEvent.class, event -> {
-            final Group group = Objects.requireNonNull(b.getGroup(event.getGroup()));
-            final GroupChatEvent e = new GroupChatEvent(b, Objects.requireNonNull(b.getMember(event.getSender())), new MiraiMessageChain(event.getMessage()), MiraiMessageSource.of(event.getSource()));
-            try {
-                EventManager.submit(e);
-            } catch (final EventSubmitException eventSubmitException) {
-                FocessQQ.getLogger().thrLang("exception-submit-group-chat-event", eventSubmitException);
+            try (Trace.Scope ignored = Trace.begin("group-chat", event.getGroup().getId())) {
+                final Group group = Objects.requireNonNull(b.getGroup(event.getGroup()));
+                final GroupChatEvent e = new GroupChatEvent(b, Objects.requireNonNull(b.getMember(event.getSender())), new MiraiMessageChain(event.getMessage()), MiraiMessageSource.of(event.getSource()));
+                EventManager.submitAsync(group.getId(), e).exceptionally(ex -> {
+                    FocessQQ.getLogger().thrLang("exception-submit-group-chat-event", ex);
+                    return null;
+                });
             }
         }));
         listeners.add(bot.getEventChannel().subscribeAlways(FriendMessageEvent.class, event -> {
-            final Friend friend = Objects.requireNonNull(b.getFriend(event.getSender()));
-            final FriendChatEvent e = new FriendChatEvent(b, friend, new MiraiMessageChain(event.getMessage()), MiraiMessageSource.of(event.getSource()));
-            try {
-                EventManager.submit(e);
-            } catch (final EventSubmitException eventSubmitException) {
-                FocessQQ.getLogger().thrLang("exception-submit-friend-chat-event", eventSubmitException);
+            try (Trace.Scope ignored = Trace.begin("friend-chat", event.getSender().getId())) {
+                final Friend friend = Objects.requireNonNull(b.getFriend(event.getSender()));
+                final FriendChatEvent e = new FriendChatEvent(b, friend, new MiraiMessageChain(event.getMessage()), MiraiMessageSource.of(event.getSource()));
+                EventManager.submitAsync(friend.getId(), e).exceptionally(ex -> {
+                    FocessQQ.getLogger().thrLang("exception-submit-friend-chat-event", ex);
+                    return null;
+                });
             }
         }));
         listeners.add(bot.getEventChannel().subscribeAlways(MessageRecallEvent.GroupRecall.class, event -> {
             final Group group = Objects.requireNonNull(b.getGroup(event.getGroup()));
             final GroupRecallEvent e = new GroupRecallEvent(b, Objects.requireNonNull(b.getMember(event.getAuthor())), event.getMessageIds(), b.getMember(event.getOperator()));
-            try {
-                EventManager.submit(e);
-            } catch (final EventSubmitException ex) {
+            EventManager.submitAsync(group.getId(), e).exceptionally(ex -> {
                 FocessQQ.getLogger().thrLang("exception-submit-group-recall-event", ex);
-            }
+                return null;
+            });
         }));
         listeners.add(bot.getEventChannel().subscribeAlways(MessageRecallEvent.FriendRecall.class, event -> {
             final Friend friend = Objects.requireNonNull(b.getFriend(event.getAuthor()));
             final FriendRecallEvent e = new FriendRecallEvent(b, friend, event.getMessageIds());
-            try {
-                EventManager.submit(e);
-            } catch (final EventSubmitException ex) {
+            EventManager.submitAsync(friend.getId(), e).exceptionally(ex -> {
                 FocessQQ.getLogger().thrLang("exception-submit-friend-recall-event", ex);
-            }
+                return null;
+            });
         }));
         listeners.add(bot.getEventChannel().subscribeAlways(NewFriendRequestEvent.class, event -> {
             final Group group = b.getGroup(event.getFromGroup());
             final FriendRequestEvent e = new FriendRequestEvent(b, event.getFromId(), event.getFromNick(), group, event.getMessage());
-            try {
-                EventManager.submit(e);
-            } catch (final EventSubmitException ex) {
-                FocessQQ.getLogger().thrLang("exception-submit-friend-request-event", ex);
-            }
-            if (e.getAccept() != null)
-                if (e.getAccept())
-                    event.accept();
-                else event.reject(e.isBlackList());
+            EventManager.submitAsync(event.getFromId(), e).whenComplete((r, ex) -> {
+                if (ex != null)
+                    FocessQQ.getLogger().thrLang("exception-submit-friend-request-event", ex);
+                if (e.getAccept() != null)
+                    if (e.getAccept())
+                        event.accept();
+                    else event.reject(e.isBlackList());
+            });
         }));
         listeners.add(bot.getEventChannel().subscribeAlways(BotInvitedJoinGroupRequestEvent.class, event -> {
             final Friend friend = b.getFriend(event.getInvitor());
             final GroupRequestEvent e = new GroupRequestEvent(b, event.getGroupId(), event.getGroupName(), friend);
-            try {
-                EventManager.submit(e);
-            } catch (final EventSubmitException ex) {
-                FocessQQ.getLogger().thrLang("exception-submit-group-request-event", ex);
-            }
-            if (e.getAccept() != null)
-                if (e.getAccept())
-                    event.accept();
-                else event.ignore();
+            EventManager.submitAsync(event.getGroupId(), e).whenComplete((r, ex) -> {
+                if (ex != null)
+                    FocessQQ.getLogger().thrLang("exception-submit-group-request-event", ex);
+                if (e.getAccept() != null)
+                    if (e.getAccept())
+                        event.accept();
+                    else event.ignore();
+            });
         }));
         listeners.add(bot.getEventChannel().subscribeAlways(FriendInputStatusChangedEvent.class, event -> {
             final Friend friend = Objects.requireNonNull(b.getFriend(event.getFriend()));
             final FriendInputStatusEvent e = new FriendInputStatusEvent(b, friend, event.getInputting());
-            try {
-                EventManager.submit(e);
-            } catch (final EventSubmitException ex) {
+            EventManager.submitAsync(friend.getId(), e).exceptionally(ex -> {
                 FocessQQ.getLogger().thrLang("exception-submit-friend-input-status-event", ex);
-            }
+                return null;
+            });
         }));
         listeners.add(bot.getEventChannel().subscribeAlways(StrangerMessageEvent.class, event -> {
-            final Stranger stranger = Objects.requireNonNull(b.getStranger(event.getStranger()));
-            final StrangerChatEvent e = new StrangerChatEvent(b, stranger, new MiraiMessageChain(event.getMessage()), MiraiMessageSource.of(event.getSource()));
-            try {
-                EventManager.submit(e);
-            } catch (final EventSubmitException ex) {
-                FocessQQ.getLogger().thrLang("exception-submit-stranger-chat-event", ex);
+            try (Trace.Scope ignored = Trace.begin("stranger-chat", event.getStranger().getId())) {
+                final Stranger stranger = Objects.requireNonNull(b.getStranger(event.getStranger()));
+                final StrangerChatEvent e = new StrangerChatEvent(b, stranger, new MiraiMessageChain(event.getMessage()), MiraiMessageSource.of(event.getSource()));
+                EventManager.submitAsync(stranger.getId(), e).exceptionally(ex -> {
+                    FocessQQ.getLogger().thrLang("exception-submit-stranger-chat-event", ex);
+                    return null;
+                });
             }
         }));
         listeners.add(bot.getEventChannel().subscribeAlways(MessagePostSendEvent.class, event -> {
             final Contact contact = getContact(b, event.getTarget());
             final BotSendMessageEvent e = new BotSendMessageEvent(b, new MiraiMessageChain(event.getMessage()), contact);
-            try {
-                EventManager.submit(e);
-            } catch (final EventSubmitException ex) {
+            EventManager.submitAsync(e).exceptionally(ex -> {
                 FocessQQ.getLogger().thrLang("exception-submit-bot-send-message-event", ex);
-            }
+                return null;
+            });
         }));
         listeners.add(bot.getEventChannel().subscribeAlways(MessagePreSendEvent.class, event -> {
             final Contact contact = getContact(b, event.getTarget());
@@ -368,33 +378,30 @@ public class MiraiBotManager implements BotManager {
         listeners.add(bot.getEventChannel().subscribeAlways(MessageSyncEvent.class, event -> {
             final Contact contact = getContact(b, event.getSubject());
             final BotSendMessageEvent e = new BotSendMessageEvent(b, new MiraiMessageChain(event.getMessage()), contact);
-            try {
-                EventManager.submit(e);
-            } catch (final EventSubmitException ex) {
+            EventManager.submitAsync(e).exceptionally(ex -> {
                 FocessQQ.getLogger().thrLang("exception-submit-bot-send-message-event", ex);
-            }
+                return null;
+            });
         }));
         listeners.add(bot.getEventChannel().subscribeAlways(MemberPermissionChangeEvent.class, event -> {
             final Group group = Objects.requireNonNull(b.getGroup(event.getGroup()));
             final Member member = Objects.requireNonNull(group.getMember(event.getMember().getId()));
             ((SimpleMember) member).setPermission(toCommandPermission(event.getNew()));
             final MemberCommandPermissionChangeEvent e = new MemberCommandPermissionChangeEvent(member, toCommandPermission(event.getOrigin()), toCommandPermission(event.getNew()));
-            try {
-                EventManager.submit(e);
-            } catch (final EventSubmitException ex) {
+            EventManager.submitAsync(group.getId(), e).exceptionally(ex -> {
                 FocessQQ.getLogger().thrLang("exception-submit-member-permission-change-event", ex);
-            }
+                return null;
+            });
         }));
         listeners.add(bot.getEventChannel().subscribeAlways(MemberCardChangeEvent.class, event -> {
             final Group group = Objects.requireNonNull(b.getGroup(event.getGroup()));
             final Member member = Objects.requireNonNull(group.getMember(event.getMember().getId()));
             ((SimpleMember) member).setCardName(event.getNew());
             final MemberCardNameChangeEvent e = new MemberCardNameChangeEvent(member, event.getOrigin(), event.getNew());
-            try {
-                EventManager.submit(e);
-            } catch (final EventSubmitException ex) {
+            EventManager.submitAsync(group.getId(), e).exceptionally(ex -> {
                 FocessQQ.getLogger().thrLang("exception-submit-member-card-change-event", ex);
-            }
+                return null;
+            });
         }));
         listeners.add(bot.getEventChannel().subscribeAlways(BotOfflineEvent.class, event -> {
             try {
@@ -0,0 +1,24 @@
+package top.focess.qq.core.bot.synthetic;
+
+import top.focess.qq.api.bot.message.Audio;
+
+/**
+ * The audio uploaded by a SyntheticBot, nothing is uploaded actually
+ */
+public class SyntheticAudio implements Audio {
+
+    private final long target;
+
+    public SyntheticAudio(final long target) {
+        this.target = target;
+    }
+
+    public long getTarget() {
+        return this.target;
+    }
+
+    @Override
+    public String toString() {
+        return "[synthetic audio]";
+    }
+}
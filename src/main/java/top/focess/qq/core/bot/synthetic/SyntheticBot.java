@@ -0,0 +1,188 @@
+package top.focess.qq.core.bot.synthetic;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.jetbrains.annotations.UnmodifiableView;
+import top.focess.command.CommandPermission;
+import top.focess.qq.api.bot.BotProtocol;
+import top.focess.qq.api.bot.contact.*;
+import top.focess.qq.api.bot.message.Audio;
+import top.focess.qq.api.bot.message.Image;
+import top.focess.qq.api.bot.message.Message;
+import top.focess.qq.api.plugin.Plugin;
+import top.focess.qq.core.bot.QQBot;
+import top.focess.qq.core.bot.contact.SimpleFriend;
+import top.focess.qq.core.bot.contact.SimpleGroup;
+import top.focess.qq.core.bot.contact.SimpleMember;
+import top.focess.qq.core.jfr.FlightEvents;
+import top.focess.qq.core.util.Trace;
+
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A bot in memory whose groups and members are generated by the SyntheticConfiguration. It sends nothing but records the replies for the SyntheticLoad.
+ * Uploading an image or audio to a group is a reply too, and sending the uploaded one to the same group again is not counted twice.
+ */
+public class SyntheticBot extends QQBot {
+
+    private static final long GROUP_ID_BASE = 100000000L;
+
+    private static final long MEMBER_ID_BASE = 200000000L;
+
+    private final Map<Long, Group> groups = Maps.newConcurrentMap();
+    private final Map<Long, Map<Long, Member>> members = Maps.newConcurrentMap();
+    // the same members as the members map in order, so generating a message does not copy the members
+    private final Map<Long, List<Member>> memberLists = Maps.newConcurrentMap();
+    private final Map<Long, Friend> friends = Maps.newConcurrentMap();
+    private final SyntheticLoad load;
+    private volatile boolean online;
+
+    public SyntheticBot(final long id, final String password, final Plugin plugin, final BotProtocol botProtocol, final SyntheticBotManager botManager, final SyntheticConfiguration configuration) {
+        super(id, password, plugin, botProtocol, botManager);
+        for (int i = 0; i < configuration.getGroups(); i++) {
+            final long groupId = GROUP_ID_BASE + i;
+            final Group group = new SimpleGroup(this, groupId, "synthetic-group-" + i, "avatarUrl/" + groupId);
+            final Map<Long, Member> groupMembers = Maps.newLinkedHashMap();
+            for (int j = 0; j < configuration.getMembers(); j++) {
+                final long memberId = MEMBER_ID_BASE + (long) i * configuration.getMembers() + j;
+                final String name = "synthetic-member-" + j;
+                groupMembers.put(memberId, new SimpleMember(group, memberId, name, name, name, j == 0 ? CommandPermission.OWNER : j == 1 ? CommandPermission.ADMINISTRATOR : CommandPermission.MEMBER));
+            }
+            this.groups.put(groupId, group);
+            this.members.put(groupId, Collections.unmodifiableMap(groupMembers));
+            this.memberLists.put(groupId, Collections.unmodifiableList(Lists.newArrayList(groupMembers.values())));
+        }
+        this.load = new SyntheticLoad(this, configuration);
+    }
+
+    @Override
+    public @Nullable Group getGroup(final long id) {
+        return this.groups.get(id);
+    }
+
+    @Override
+    public @Nullable Friend getFriend(final long id) {
+        return this.friends.get(id);
+    }
+
+    @Override
+    public @NonNull @UnmodifiableView List<Friend> getFriends() {
+        return Collections.unmodifiableList(Lists.newArrayList(this.friends.values()));
+    }
+
+    @Override
+    public @NonNull @UnmodifiableView List<Group> getGroups() {
+        return Collections.unmodifiableList(Lists.newArrayList(this.groups.values()));
+    }
+
+    @Override
+    public boolean isOnline() {
+        return this.online;
+    }
+
+    void setOnline(final boolean online) {
+        this.online = online;
+    }
+
+    @Override
+    public @NonNull Friend getAsFriend() {
+        return new SimpleFriend(this, this.getId(), String.valueOf(this.getId()), String.valueOf(this.getId()), "avatarUrl/" + this.getId());
+    }
+
+    @Override
+    public void sendMessage(final Transmitter transmitter, final Message message) {
+        final FlightEvents.MessageSend jfr = FlightEvents.AVAILABLE ? new FlightEvents.MessageSend() : null;
+        if (jfr != null)
+            jfr.begin();
+        Trace.record("send-message", transmitter.getId(), System.nanoTime());
+        this.recordSentMessage();
+        if (transmitter instanceof Group && !isUploadedTo(message, transmitter.getId()))
+            this.load.reply(transmitter.getId());
+        if (jfr != null) {
+            jfr.bot = this.getId();
+            jfr.target = transmitter.getId();
+            jfr.commit();
+        }
+    }
+
+    private static boolean isUploadedTo(final Message message, final long target) {
+        if (message instanceof SyntheticImage)
+            return ((SyntheticImage) message).getTarget() == target;
+        if (message instanceof SyntheticAudio)
+            return ((SyntheticAudio) message).getTarget() == target;
+        return false;
+    }
+
+    @Override
+    public Image uploadImage(final Transmitter transmitter, final InputStream resource) {
+        this.upload(transmitter, "image");
+        return new SyntheticImage(transmitter.getId());
+    }
+
+    @Override
+    public @Nullable Audio uploadAudio(final Speaker speaker, final InputStream inputStream) {
+        this.upload(speaker, "audio");
+        return new SyntheticAudio(speaker.getId());
+    }
+
+    private void upload(final Transmitter transmitter, final String type) {
+        final FlightEvents.MessageUpload jfr = FlightEvents.AVAILABLE ? new FlightEvents.MessageUpload() : null;
+        if (jfr != null)
+            jfr.begin();
+        if (transmitter instanceof Group)
+            this.load.reply(transmitter.getId());
+        if (jfr != null) {
+            jfr.bot = this.getId();
+            jfr.target = transmitter.getId();
+            jfr.type = type;
+            jfr.succeeded = true;
+            jfr.commit();
+        }
+    }
+
+    @Override
+    public void deleteFriend(final Friend friend) {
+        this.friends.remove(friend.getId());
+    }
+
+    @Override
+    public void quitGroup(final Group group) {
+        this.groups.remove(group.getId());
+        this.members.remove(group.getId());
+        this.memberLists.remove(group.getId());
+    }
+
+    @Override
+    public @Nullable Member getMember(final Group group, final long id) {
+        return this.members.getOrDefault(group.getId(), Collections.emptyMap()).get(id);
+    }
+
+    @Override
+    public Member getAsMember(final Group group) {
+        return new SimpleMember(group, this.getId(), String.valueOf(this.getId()), String.valueOf(this.getId()), String.valueOf(this.getId()), CommandPermission.MEMBER);
+    }
+
+    @Override
+    public List<Member> getMembers(final Group group) {
+        return this.memberLists.getOrDefault(group.getId(), Collections.emptyList());
+    }
+
+    @Override
+    public @Nullable Stranger getStranger(final long id) {
+        return null;
+    }
+
+    @Override
+    public @Nullable OtherClient getOtherClient(final long id) {
+        return null;
+    }
+
+    public SyntheticLoad getLoad() {
+        return this.load;
+    }
+}
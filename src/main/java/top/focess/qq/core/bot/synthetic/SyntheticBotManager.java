@@ -0,0 +1,173 @@
+package top.focess.qq.core.bot.synthetic;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.UnmodifiableView;
+import top.focess.qq.FocessQQ;
+import top.focess.qq.api.bot.Bot;
+import top.focess.qq.api.bot.BotManager;
+import top.focess.qq.api.bot.BotProtocol;
+import top.focess.qq.api.event.EventManager;
+import top.focess.qq.api.event.EventSubmitException;
+import top.focess.qq.api.event.bot.BotLoginEvent;
+import top.focess.qq.api.event.bot.BotLogoutEvent;
+import top.focess.qq.api.event.bot.BotReloginEvent;
+import top.focess.qq.api.plugin.Plugin;
+import top.focess.qq.api.scheduler.Schedulers;
+import top.focess.qq.core.permission.Permission;
+import top.focess.qq.core.permission.PermissionEnv;
+import top.focess.scheduler.Scheduler;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+
+/**
+ * The BotManager of the bots in memory which receive the generated group messages, used to load test the framework and the plugins without QQ account.
+ * Use it by --botManager synthetic, and configure the load by the options described in {@link SyntheticConfiguration#fromOptions()}.
+ */
+@PermissionEnv(values = {Permission.REMOVE_BOT_MANAGER, Permission.BOT_LOGIN, Permission.BOT_LOGOUT, Permission.BOT_RELOGIN})
+public class SyntheticBotManager implements BotManager {
+
+    private static final Scheduler SCHEDULER = Schedulers.newFocessScheduler(FocessQQ.getMainPlugin(), "SyntheticBotManager");
+
+    private static final Map<Plugin, List<Bot>> PLUGIN_BOT_MAP = Maps.newConcurrentMap();
+
+    private static final Map<Long, Bot> BOTS = Maps.newConcurrentMap();
+
+    private final SyntheticConfiguration configuration;
+
+    public SyntheticBotManager() {
+        this(SyntheticConfiguration.fromOptions());
+    }
+
+    /**
+     * Create a SyntheticBotManager with the given configuration instead of the options
+     *
+     * @param configuration the configuration of the bots logged in by this manager
+     */
+    public SyntheticBotManager(@NotNull final SyntheticConfiguration configuration) {
+        this.configuration = configuration;
+    }
+
+    @Override
+    public Future<Bot> login(final long id, final String password, final Plugin plugin, final BotProtocol botProtocol) {
+        Permission.checkPermission(Permission.BOT_LOGIN);
+        return SCHEDULER.submit(() -> this.loginDirectly(id, password, plugin, botProtocol), "login-bot-" + id);
+    }
+
+    @Override
+    @NotNull
+    public Bot loginDirectly(final long id, final String password, final Plugin plugin, final BotProtocol botProtocol) {
+        Permission.checkPermission(Permission.BOT_LOGIN);
+        final SyntheticBot bot = new SyntheticBot(id, password, plugin, botProtocol, this, this.configuration);
+        this.login(bot);
+        PLUGIN_BOT_MAP.compute(plugin, (k, v) -> {
+            if (v == null)
+                v = Lists.newArrayList();
+            v.add(bot);
+            return v;
+        });
+        BOTS.put(id, bot);
+        return bot;
+    }
+
+    @Override
+    public boolean login(final Bot bot) {
+        Permission.checkPermission(Permission.BOT_LOGIN);
+        this.checkBot(bot);
+        if (bot.isOnline())
+            return false;
+        ((SyntheticBot) bot).setOnline(true);
+        try {
+            EventManager.submit(new BotLoginEvent(bot));
+        } catch (final EventSubmitException e) {
+            FocessQQ.getLogger().thrLang("exception-submit-bot-login-event", e);
+        }
+        ((SyntheticBot) bot).getLoad().start();
+        return true;
+    }
+
+    @Override
+    public boolean logout(@NotNull final Bot bot) {
+        Permission.checkPermission(Permission.BOT_LOGOUT);
+        this.checkBot(bot);
+        if (!bot.isOnline())
+            return false;
+        ((SyntheticBot) bot).getLoad().stop();
+        ((SyntheticBot) bot).setOnline(false);
+        try {
+            EventManager.submit(new BotLogoutEvent(bot));
+        } catch (final EventSubmitException e) {
+            FocessQQ.getLogger().thrLang("exception-submit-bot-logout-event", e);
+        }
+        return true;
+    }
+
+    @Override
+    @Nullable
+    public Bot getBot(final long id) {
+        return BOTS.get(id);
+    }
+
+    @Override
+    public boolean relogin(@NotNull final Bot bot) {
+        Permission.checkPermission(Permission.BOT_RELOGIN);
+        this.checkBot(bot);
+        final boolean ret = this.logout(bot) && this.login(bot);
+        try {
+            EventManager.submit(new BotReloginEvent(bot));
+        } catch (final EventSubmitException e) {
+            FocessQQ.getLogger().thrLang("exception-submit-bot-relogin-event", e);
+        }
+        return ret;
+    }
+
+    @Override
+    @UnmodifiableView
+    public List<Bot> getBots() {
+        return Collections.unmodifiableList(Lists.newArrayList(BOTS.values()));
+    }
+
+    @Override
+    @Nullable
+    public Bot remove(final long id) {
+        Permission.checkPermission(Permission.REMOVE_BOT_MANAGER);
+        if (FocessQQ.getBot() != null && FocessQQ.getBot().getId() == id)
+            return null;
+        final Bot b = BOTS.remove(id);
+        if (b != null)
+            b.logout();
+        return b;
+    }
+
+    @Override
+    public void removeAll() {
+        Permission.checkPermission(Permission.REMOVE_BOT_MANAGER);
+        for (final Long id : BOTS.keySet())
+            this.remove(id);
+        //remove default bot
+        if (FocessQQ.getBot() != null) {
+            final Bot b = BOTS.remove(FocessQQ.getBot().getId());
+            if (b != null)
+                b.logout();
+        }
+        PLUGIN_BOT_MAP.clear();
+    }
+
+    @Override
+    public void remove(final Plugin plugin) {
+        Permission.checkPermission(Permission.REMOVE_BOT_MANAGER);
+        for (final Bot b : PLUGIN_BOT_MAP.getOrDefault(plugin, Lists.newArrayList()))
+            this.remove(b.getId());
+        PLUGIN_BOT_MAP.remove(plugin);
+    }
+
+    private void checkBot(@NotNull final Bot bot) {
+        if (!(bot instanceof SyntheticBot))
+            throw new IllegalArgumentException("Bot must be instanced of SyntheticBot");
+    }
+}
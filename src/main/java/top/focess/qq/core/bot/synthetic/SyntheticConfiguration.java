@@ -0,0 +1,112 @@
+package top.focess.qq.core.bot.synthetic;
+
+import com.google.common.collect.Lists;
+import org.jetbrains.annotations.NotNull;
+import top.focess.qq.FocessQQ;
+import top.focess.util.option.Option;
+import top.focess.util.option.type.IntegerOptionType;
+import top.focess.util.option.type.OptionType;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The configuration of the synthetic load, read from the options once when the SyntheticBotManager is created
+ */
+public class SyntheticConfiguration {
+
+    private final int groups;
+    private final int members;
+    private final int rate;
+    private final SyntheticProfile profile;
+    private final int commandPercent;
+    private final List<String> commands;
+    private final List<String> replay;
+
+    public SyntheticConfiguration(final int groups, final int members, final int rate, @NotNull final SyntheticProfile profile, final int commandPercent, @NotNull final List<String> commands, @NotNull final List<String> replay) {
+        this.groups = Math.max(groups, 1);
+        this.members = Math.max(members, 1);
+        this.rate = Math.max(rate, 0);
+        this.profile = profile;
+        this.commandPercent = commands.isEmpty() ? 0 : Math.min(Math.max(commandPercent, 0), 100);
+        this.commands = Collections.unmodifiableList(commands);
+        this.replay = Collections.unmodifiableList(replay);
+    }
+
+    /**
+     * Read the configuration from the options
+     * <p>
+     * --synthetic &lt;groups&gt; &lt;members&gt; &lt;rate&gt; &lt;constant|ramp|burst&gt;, 10 groups of 50 members at 100 messages per second by default
+     * --syntheticCommands &lt;percent&gt; &lt;command;command...&gt;, the percent of messages which are commands picked from the list
+     * --syntheticReplay &lt;file&gt;, replay the lines of the file as the non-command messages in order instead of generating them
+     *
+     * @return the configuration
+     */
+    @NotNull
+    public static SyntheticConfiguration fromOptions() {
+        int groups = 10, members = 50, rate = 100, commandPercent = 0;
+        SyntheticProfile profile = SyntheticProfile.CONSTANT;
+        final List<String> commands = Lists.newArrayList();
+        List<String> replay = Collections.emptyList();
+        if (FocessQQ.getOptions() != null) {
+            Option option = FocessQQ.getOptions().get("synthetic");
+            if (option != null) {
+                groups = option.get(IntegerOptionType.INTEGER_OPTION_TYPE);
+                members = option.get(IntegerOptionType.INTEGER_OPTION_TYPE);
+                rate = option.get(IntegerOptionType.INTEGER_OPTION_TYPE);
+                final String name = option.get(OptionType.DEFAULT_OPTION_TYPE);
+                try {
+                    profile = SyntheticProfile.valueOf(name.toUpperCase());
+                } catch (final IllegalArgumentException ignored) {
+                }
+            }
+            option = FocessQQ.getOptions().get("syntheticCommands");
+            if (option != null) {
+                commandPercent = option.get(IntegerOptionType.INTEGER_OPTION_TYPE);
+                for (final String command : option.get(OptionType.DEFAULT_OPTION_TYPE).split(";"))
+                    if (!command.trim().isEmpty())
+                        commands.add(command.trim());
+            }
+            option = FocessQQ.getOptions().get("syntheticReplay");
+            if (option != null)
+                try {
+                    replay = Files.readAllLines(Paths.get(option.get(OptionType.DEFAULT_OPTION_TYPE)), StandardCharsets.UTF_8);
+                } catch (final IOException e) {
+                    FocessQQ.getLogger().thrLang("exception-load-synthetic-replay", e);
+                }
+        }
+        return new SyntheticConfiguration(groups, members, rate, profile, commandPercent, commands, replay);
+    }
+
+    public int getGroups() {
+        return this.groups;
+    }
+
+    public int getMembers() {
+        return this.members;
+    }
+
+    public int getRate() {
+        return this.rate;
+    }
+
+    public SyntheticProfile getProfile() {
+        return this.profile;
+    }
+
+    public int getCommandPercent() {
+        return this.commandPercent;
+    }
+
+    public List<String> getCommands() {
+        return this.commands;
+    }
+
+    public List<String> getReplay() {
+        return this.replay;
+    }
+}
@@ -0,0 +1,24 @@
+package top.focess.qq.core.bot.synthetic;
+
+import top.focess.qq.api.bot.message.Image;
+
+/**
+ * The image uploaded by a SyntheticBot, nothing is uploaded actually
+ */
+public class SyntheticImage implements Image {
+
+    private final long target;
+
+    public SyntheticImage(final long target) {
+        this.target = target;
+    }
+
+    public long getTarget() {
+        return this.target;
+    }
+
+    @Override
+    public String toString() {
+        return "[synthetic image]";
+    }
+}
@@ -0,0 +1,201 @@
+package top.focess.qq.core.bot.synthetic;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Queues;
+import org.jetbrains.annotations.NotNull;
+import top.focess.qq.FocessQQ;
+import top.focess.qq.api.bot.contact.Group;
+import top.focess.qq.api.bot.contact.Member;
+import top.focess.qq.api.bot.message.TextMessage;
+import top.focess.qq.api.event.EventManager;
+import top.focess.qq.api.event.chat.GroupChatEvent;
+import top.focess.qq.api.scheduler.Schedulers;
+import top.focess.qq.core.util.LatencyHistogram;
+import top.focess.qq.core.util.Trace;
+import top.focess.scheduler.Scheduler;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Generate the group messages of a SyntheticBot at the configured rate, and measure the latency from the event creation to the listener completion and to the reply.
+ * A reply to a group is matched to the oldest command sent to the group which is not replied yet.
+ */
+public class SyntheticLoad {
+
+    private static final long TICK = 10;
+
+    private static final long REPORT_PERIOD = TimeUnit.SECONDS.toMillis(10);
+
+    /**
+     * The commands without reply in this time are not waited for any more
+     */
+    private static final long REPLY_TIMEOUT = TimeUnit.SECONDS.toNanos(10);
+
+    private final SyntheticBot bot;
+    private final SyntheticConfiguration configuration;
+
+    private final LatencyHistogram eventLatency = new LatencyHistogram();
+    private final LatencyHistogram replyLatency = new LatencyHistogram();
+    private final LongAdder generated = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder replied = new LongAdder();
+    private final Map<Long, Queue<Long>> pendingReplies = Maps.newConcurrentMap();
+    private final AtomicInteger messageId = new AtomicInteger();
+
+    private volatile boolean running;
+    // the tick chain of an earlier start stops itself when the load is restarted
+    private volatile int round;
+    private long start;
+    private long lastReport;
+    private double credit;
+    private int replayIndex;
+
+    public SyntheticLoad(@NotNull final SyntheticBot bot, @NotNull final SyntheticConfiguration configuration) {
+        this.bot = bot;
+        this.configuration = configuration;
+    }
+
+    public synchronized void start() {
+        if (this.running)
+            return;
+        this.running = true;
+        this.start = this.lastReport = System.currentTimeMillis();
+        this.credit = 0;
+        final int round = ++this.round;
+        Ticker.SCHEDULER.run(() -> this.tick(round), Duration.ofMillis(TICK), "synthetic-load-" + this.bot.getId());
+    }
+
+    public synchronized void stop() {
+        if (!this.running)
+            return;
+        this.running = false;
+        this.report();
+    }
+
+    private void tick(final int round) {
+        if (!this.running || round != this.round)
+            return;
+        final long now = System.currentTimeMillis();
+        this.credit += this.configuration.getProfile().getRate(this.configuration.getRate(), now - this.start) * TICK / 1000;
+        while (this.credit >= 1) {
+            this.credit--;
+            this.generate();
+        }
+        this.expireReplies();
+        if (now - this.lastReport >= REPORT_PERIOD) {
+            this.lastReport = now;
+            this.report();
+        }
+        Ticker.SCHEDULER.run(() -> this.tick(round), Duration.ofMillis(TICK), "synthetic-load-" + this.bot.getId());
+    }
+
+    private void generate() {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final List<Group> groups = this.bot.getGroups();
+        if (groups.isEmpty())
+            return;
+        final Group group = groups.get(random.nextInt(groups.size()));
+        final List<Member> members = group.getMembers();
+        if (members.isEmpty())
+            return;
+        final Member member = members.get(random.nextInt(members.size()));
+        final boolean command = random.nextInt(100) < this.configuration.getCommandPercent();
+        final String message;
+        if (command)
+            message = this.configuration.getCommands().get(random.nextInt(this.configuration.getCommands().size()));
+        else if (!this.configuration.getReplay().isEmpty()) {
+            message = this.configuration.getReplay().get(this.replayIndex);
+            this.replayIndex = (this.replayIndex + 1) % this.configuration.getReplay().size();
+        } else message = "synthetic message " + this.generated.sum();
+        final long created = System.nanoTime();
+        if (command)
+            this.pendingReplies.computeIfAbsent(group.getId(), k -> Queues.newConcurrentLinkedQueue()).offer(created);
+        try (Trace.Scope ignored = Trace.begin("group-chat", group.getId())) {
+            final GroupChatEvent event = new GroupChatEvent(this.bot, member, new TextMessage(message), new SyntheticMessageSource(member.getId(), group.getId(), this.bot.getId(), this.messageId.incrementAndGet()));
+            this.generated.increment();
+            EventManager.submitAsync(group.getId(), event).whenComplete((e, ex) -> {
+                if (ex != null)
+                    FocessQQ.getLogger().thrLang("exception-submit-group-chat-event", ex);
+                else if (e == null)
+                    this.dropped.increment();
+                else {
+                    this.eventLatency.record(System.nanoTime() - created);
+                    this.completed.increment();
+                }
+            });
+        }
+    }
+
+    /**
+     * Record the reply sent to the group
+     *
+     * @param id the group id
+     */
+    void reply(final long id) {
+        final Queue<Long> queue = this.pendingReplies.get(id);
+        if (queue == null)
+            return;
+        final long now = System.nanoTime();
+        Long created;
+        while ((created = queue.poll()) != null)
+            if (now - created <= REPLY_TIMEOUT) {
+                this.replyLatency.record(now - created);
+                this.replied.increment();
+                return;
+            }
+    }
+
+    /**
+     * Remove the commands which are not replied in time, so the commands without reply do not pile up
+     */
+    private void expireReplies() {
+        final long now = System.nanoTime();
+        for (final Queue<Long> queue : this.pendingReplies.values()) {
+            Long created;
+            while ((created = queue.peek()) != null && now - created > REPLY_TIMEOUT)
+                queue.remove(created);
+        }
+    }
+
+    private void report() {
+        FocessQQ.getLogger().infoLang("synthetic-report", this.bot.getId(), this.generated.sum(), this.completed.sum(), this.dropped.sum(), this.replied.sum(),
+                this.eventLatency.getPercentile(0.5) / 1e6, this.eventLatency.getPercentile(0.99) / 1e6, this.eventLatency.getMax() / 1e6,
+                this.replyLatency.getPercentile(0.5) / 1e6, this.replyLatency.getPercentile(0.99) / 1e6);
+    }
+
+    public LatencyHistogram getEventLatency() {
+        return this.eventLatency;
+    }
+
+    public LatencyHistogram getReplyLatency() {
+        return this.replyLatency;
+    }
+
+    public long getGenerated() {
+        return this.generated.sum();
+    }
+
+    public long getCompleted() {
+        return this.completed.sum();
+    }
+
+    public long getDropped() {
+        return this.dropped.sum();
+    }
+
+    public long getReplied() {
+        return this.replied.sum();
+    }
+
+    private static class Ticker {
+        private static final Scheduler SCHEDULER = Schedulers.newFocessScheduler(FocessQQ.getMainPlugin(), "SyntheticLoad");
+    }
+}
@@ -0,0 +1,50 @@
+package top.focess.qq.core.bot.synthetic;
+
+import top.focess.qq.api.bot.message.MessageSource;
+
+public class SyntheticMessageSource extends MessageSource {
+
+    private final long sender;
+    private final long target;
+    private final long botId;
+    private final int time;
+    private final int id;
+
+    public SyntheticMessageSource(final long sender, final long target, final long botId, final int id) {
+        this.sender = sender;
+        this.target = target;
+        this.botId = botId;
+        this.time = (int) (System.currentTimeMillis() / 1000);
+        this.id = id;
+    }
+
+    @Override
+    public long getSender() {
+        return this.sender;
+    }
+
+    @Override
+    public long getTarget() {
+        return this.target;
+    }
+
+    @Override
+    public long getBotId() {
+        return this.botId;
+    }
+
+    @Override
+    public int getTime() {
+        return this.time;
+    }
+
+    @Override
+    public int[] getIds() {
+        return new int[]{this.id};
+    }
+
+    @Override
+    public int[] getInternalIds() {
+        return new int[]{this.id};
+    }
+}
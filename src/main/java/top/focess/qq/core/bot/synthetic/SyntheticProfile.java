@@ -0,0 +1,44 @@
+package top.focess.qq.core.bot.synthetic;
+
+/**
+ * The message rate profile of the synthetic load
+ */
+public enum SyntheticProfile {
+
+    /**
+     * Keep the base rate
+     */
+    CONSTANT {
+        @Override
+        public double getRate(final double rate, final long elapsed) {
+            return rate;
+        }
+    },
+    /**
+     * Increase the rate by the base rate every minute, to find the rate the framework saturates at
+     */
+    RAMP {
+        @Override
+        public double getRate(final double rate, final long elapsed) {
+            return rate * (1 + elapsed / 60000.0);
+        }
+    },
+    /**
+     * Send ten times the base rate in the first second of every ten seconds
+     */
+    BURST {
+        @Override
+        public double getRate(final double rate, final long elapsed) {
+            return elapsed % 10000 < 1000 ? rate * 10 : rate;
+        }
+    };
+
+    /**
+     * Get the message rate at the elapsed time
+     *
+     * @param rate    the base rate in messages per second
+     * @param elapsed the elapsed time since the load starts in milliseconds
+     * @return the message rate in messages per second
+     */
+    public abstract double getRate(double rate, long elapsed);
+}
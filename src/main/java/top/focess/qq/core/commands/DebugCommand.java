@@ -2,12 +2,28 @@ package top.focess.qq.core.commands;
 
 import com.google.common.collect.Lists;
 import org.jetbrains.annotations.NotNull;
+import top.focess.command.CommandArgument;
 import top.focess.command.CommandResult;
 import top.focess.qq.FocessQQ;
+import top.focess.qq.api.bot.Bot;
 import top.focess.qq.api.command.Command;
 import top.focess.qq.api.command.CommandSender;
+import top.focess.qq.api.event.EventManager;
+import top.focess.qq.api.event.ListenerHandler;
+import top.focess.qq.core.bot.synthetic.SyntheticBot;
+import top.focess.qq.core.bot.synthetic.SyntheticLoad;
+import top.focess.qq.core.event.RegisteredListener;
+import top.focess.qq.core.jfr.FlightEvents;
+import top.focess.qq.core.jfr.FlightRecording;
+import top.focess.qq.core.util.LatencyHistogram;
+import top.focess.qq.core.util.Trace;
 
+import java.io.File;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 
 public class DebugCommand extends Command {
 
@@ -23,11 +39,91 @@ public class DebugCommand extends Command {
             ioHandler.outputLang("debug-command-debug-output-status",FocessQQ.getLogger().isDebugOutput());
             return CommandResult.ALLOW;
         });
+        this.addExecutor((sender, dataCollection, ioHandler) -> {
+            final List<RegisteredListener> listeners = ListenerHandler.getRegisteredListeners();
+            if (listeners.isEmpty()) {
+                ioHandler.outputLang("debug-command-no-listener");
+                return CommandResult.ALLOW;
+            }
+            listeners.sort(Comparator.comparingLong((RegisteredListener i) -> i.getLatency().getPercentile(0.99)).reversed());
+            for (final RegisteredListener listener : listeners) {
+                final LatencyHistogram latency = listener.getLatency();
+                ioHandler.outputLang("debug-command-listener-latency", listener.toString(), latency.getCount(), latency.getPercentile(0.5) / 1e6, latency.getPercentile(0.99) / 1e6, latency.getMax() / 1e6);
+            }
+            return CommandResult.ALLOW;
+        }, CommandArgument.of("listeners"));
+        this.addExecutor((sender, dataCollection, ioHandler) -> {
+            ioHandler.outputLang("debug-command-ingress", EventManager.getIngressDepth(), EventManager.getIngressCapacity(), EventManager.getIngressPolicy(), EventManager.getIngressMessagePolicy(), EventManager.getIngressDropped());
+            for (final Map.Entry<Class<?>, Long> entry : EventManager.getIngressDroppedByType().entrySet())
+                ioHandler.outputLang("debug-command-ingress-dropped", entry.getKey().getName(), entry.getValue());
+            return CommandResult.ALLOW;
+        }, CommandArgument.of("ingress"));
+        this.addExecutor((sender, dataCollection, ioHandler) -> {
+            boolean found = false;
+            for (final Bot bot : FocessQQ.getBotManager().getBots())
+                if (bot instanceof SyntheticBot) {
+                    found = true;
+                    final SyntheticLoad load = ((SyntheticBot) bot).getLoad();
+                    ioHandler.outputLang("synthetic-report", bot.getId(), load.getGenerated(), load.getCompleted(), load.getDropped(), load.getReplied(),
+                            load.getEventLatency().getPercentile(0.5) / 1e6, load.getEventLatency().getPercentile(0.99) / 1e6, load.getEventLatency().getMax() / 1e6,
+                            load.getReplyLatency().getPercentile(0.5) / 1e6, load.getReplyLatency().getPercentile(0.99) / 1e6);
+                }
+            if (!found)
+                ioHandler.outputLang("debug-command-no-synthetic-bot");
+            return CommandResult.ALLOW;
+        }, CommandArgument.of("synthetic"));
+        this.addExecutor((sender, dataCollection, ioHandler) -> {
+            final List<Trace> traces = Trace.getSlowestTraces(5);
+            if (traces.isEmpty())
+                ioHandler.outputLang("debug-command-no-trace");
+            for (final Trace trace : traces) {
+                ioHandler.outputLang("debug-command-trace", trace.getId(), trace.getName(), trace.getDuration() / 1e6);
+                for (final Trace.Span span : trace.getSpans())
+                    ioHandler.outputLang("debug-command-trace-span", span.getName(), span.getThread(), span.getOffset() / 1e6, span.getDuration() / 1e6);
+            }
+            return CommandResult.ALLOW;
+        }, CommandArgument.of("trace"));
+        this.addExecutor((sender, dataCollection, ioHandler) -> {
+            if (!FlightEvents.AVAILABLE) {
+                ioHandler.outputLang("debug-command-jfr-unavailable");
+                return CommandResult.ALLOW;
+            }
+            try {
+                if (FlightRecording.start())
+                    ioHandler.outputLang("debug-command-jfr-start");
+                else ioHandler.outputLang("debug-command-jfr-already-started");
+            } catch (final IOException | ParseException e) {
+                ioHandler.outputLang("debug-command-jfr-failed", e.getMessage());
+            }
+            return CommandResult.ALLOW;
+        }, CommandArgument.of("jfr"), CommandArgument.of("start"));
+        this.addExecutor((sender, dataCollection, ioHandler) -> {
+            try {
+                final File file = FlightRecording.stop();
+                if (file == null)
+                    ioHandler.outputLang("debug-command-jfr-not-started");
+                else ioHandler.outputLang("debug-command-jfr-stop", file.getPath());
+            } catch (final IOException e) {
+                ioHandler.outputLang("debug-command-jfr-failed", e.getMessage());
+            }
+            return CommandResult.ALLOW;
+        }, CommandArgument.of("jfr"), CommandArgument.of("stop"));
+        this.addExecutor((sender, dataCollection, ioHandler) -> {
+            try {
+                final File file = FlightRecording.dump();
+                if (file == null)
+                    ioHandler.outputLang("debug-command-jfr-not-started");
+                else ioHandler.outputLang("debug-command-jfr-dump", file.getPath());
+            } catch (final IOException e) {
+                ioHandler.outputLang("debug-command-jfr-failed", e.getMessage());
+            }
+            return CommandResult.ALLOW;
+        }, CommandArgument.of("jfr"), CommandArgument.of("dump"));
     }
 
     @Override
     @NotNull
     public List<String> usage(final CommandSender sender) {
-        return Lists.newArrayList("Use: debug");
+        return Lists.newArrayList("Use: debug", "Use: debug listeners", "Use: debug ingress", "Use: debug synthetic", "Use: debug trace", "Use: debug jfr start|stop|dump");
     }
 }
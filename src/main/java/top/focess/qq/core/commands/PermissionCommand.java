@@ -10,7 +10,10 @@ import top.focess.qq.api.command.converter.PermissionDataConverter;
 import top.focess.qq.api.command.converter.PluginDataConverter;
 import top.focess.qq.api.plugin.Plugin;
 import top.focess.qq.core.permission.Permission;
+import top.focess.qq.core.permission.PermissionAudit;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.List;
 
 public class PermissionCommand extends Command {
@@ -51,10 +54,35 @@ public class PermissionCommand extends Command {
             ioHandler.outputLang("permission-command-list-plugin", permission.getName(), stringBuilder.toString());
             return CommandResult.ALLOW;
         }, CommandArgument.of("list"), CommandArgument.of(PermissionDataConverter.PERMISSION_DATA_CONVERTER));
+        this.addExecutor((sender, data, ioHandler) -> {
+            List<PermissionAudit.Entry> entries = PermissionAudit.getEntries();
+            if (entries.isEmpty())
+                ioHandler.outputLang("permission-command-stats-empty");
+            for (PermissionAudit.Entry entry : entries)
+                ioHandler.outputLang("permission-command-stats", entry.getPlugin(), entry.getPermission().getName(), entry.getGranted(), entry.getDenied());
+            for (PermissionAudit.DenialSample sample : PermissionAudit.getSamples())
+                ioHandler.outputLang("permission-command-stats-sample", sample.getPlugin(), sample.getPermission().getName(), sample.getPluginFrame() != null ? sample.getPluginFrame().toString() : "unknown");
+            return CommandResult.ALLOW;
+        }, CommandArgument.of("stats"));
+        this.addExecutor((sender, data, ioHandler) -> {
+            File file = new File("plugins/Main", "permission-stats.csv");
+            try {
+                PermissionAudit.export(file);
+                ioHandler.outputLang("permission-command-stats-export", file.getPath());
+            } catch (IOException e) {
+                ioHandler.outputLang("permission-command-stats-export-failed", e.getMessage());
+            }
+            return CommandResult.ALLOW;
+        }, CommandArgument.of("stats"), CommandArgument.of("export"));
+        this.addExecutor((sender, data, ioHandler) -> {
+            PermissionAudit.reset();
+            ioHandler.outputLang("permission-command-stats-reset");
+            return CommandResult.ALLOW;
+        }, CommandArgument.of("stats"), CommandArgument.of("reset"));
     }
 
     @Override
     public @NotNull List<String> usage(CommandSender sender) {
-        return Lists.newArrayList("Use: permission set <plugin> <permission>", "Use: permission get <plugin>", "Use: permission list <permission>");
+        return Lists.newArrayList("Use: permission set <plugin> <permission>", "Use: permission get <plugin>", "Use: permission list <permission>", "Use: permission stats [export|reset]");
     }
 }
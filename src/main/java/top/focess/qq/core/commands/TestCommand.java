@@ -11,9 +11,8 @@ import top.focess.qq.api.command.Command;
 import top.focess.qq.api.command.CommandLine;
 import top.focess.qq.api.command.CommandSender;
 import top.focess.qq.api.plugin.Plugin;
-import top.focess.scheduler.AScheduler;
+import top.focess.qq.core.scheduler.AScheduler;
 import top.focess.scheduler.FocessTask;
-import top.focess.scheduler.Scheduler;
 
 import java.util.List;
 
@@ -64,9 +63,10 @@ public class TestCommand extends Command {
         }, CommandArgument.of("input"));
         this.addExecutor((sender, dataCollection, ioHandler) -> {
             System.out.println(FocessTask.getTasks());
-            for (final Scheduler scheduler : AScheduler.getSchedulers()) {
+            for (final AScheduler scheduler : AScheduler.getSchedulers()) {
                 ioHandler.output("scheduler: " + scheduler.getName());
                 ioHandler.output("scheduler remaining tasks" + scheduler.getRemainingTasks());
+                ioHandler.output("scheduler active tasks: " + scheduler.getActiveTasks() + " task p99: " + scheduler.getLatency().getPercentile(0.99) / 1e6 + "ms");
             }
             return CommandResult.ALLOW;
         }, CommandArgument.of("scheduler"));
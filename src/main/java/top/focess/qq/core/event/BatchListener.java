@@ -0,0 +1,135 @@
+package top.focess.qq.core.event;
+
+import com.google.common.collect.Lists;
+import org.jetbrains.annotations.NotNull;
+import top.focess.qq.FocessQQ;
+import top.focess.qq.api.event.BatchEventHandler;
+import top.focess.qq.api.event.Event;
+import top.focess.qq.api.event.Listener;
+import top.focess.qq.api.scheduler.Schedulers;
+import top.focess.scheduler.Scheduler;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Represent a batch listener method registered in a ListenerHandler. It buffers the events and delivers them in batches of at most the max size.
+ */
+public final class BatchListener {
+
+    private final Listener listener;
+    private final Method method;
+    private final BatchEventHandler handler;
+    private final EventInvoker<List<Event>> invoker;
+    private final int maxSize;
+    private final Deque<Event> buffer = new ArrayDeque<>();
+    //the batches are delivered one by one, even if the listener is closed while a batch is being delivered
+    private final Object deliveryLock = new Object();
+
+    //no event is gathered after the listener is unregistered
+    private boolean closed;
+
+    public BatchListener(@NotNull final Listener listener, @NotNull final Method method, @NotNull final BatchEventHandler handler) {
+        this.listener = listener;
+        this.method = method;
+        this.handler = handler;
+        this.invoker = EventInvoker.compile(method);
+        this.maxSize = Math.max(handler.maxSize(), 1);
+    }
+
+    public Listener getListener() {
+        return this.listener;
+    }
+
+    public BatchEventHandler getHandler() {
+        return this.handler;
+    }
+
+    /**
+     * Add the event to the current batch. The batch is delivered when it is full or its first event has waited for the max delay.
+     * The event is ignored if this listener is closed.
+     *
+     * @param event the event
+     */
+    public void offer(@NotNull final Event event) {
+        final int size;
+        synchronized (this) {
+            if (this.closed)
+                return;
+            this.buffer.addLast(event);
+            size = this.buffer.size();
+        }
+        // the later events are delivered by the flush of the full batch
+        if (size == this.maxSize)
+            Delivery.SCHEDULER.run(this::flush, "batch-" + this);
+        else if (size == 1)
+            Delivery.SCHEDULER.run(this::flush, Duration.ofMillis(this.handler.maxDelay()), "batch-" + this);
+    }
+
+    /**
+     * Deliver one batch of the buffered events immediately. The rest events are delivered by another flush.
+     */
+    public void flush() {
+        synchronized (this.deliveryLock) {
+            final List<Event> events = this.poll();
+            if (events == null)
+                return;
+            this.deliver(events);
+        }
+        final int size;
+        synchronized (this) {
+            size = this.buffer.size();
+        }
+        if (size >= this.maxSize)
+            Delivery.SCHEDULER.run(this::flush, "batch-" + this);
+        else if (size > 0)
+            Delivery.SCHEDULER.run(this::flush, Duration.ofMillis(this.handler.maxDelay()), "batch-" + this);
+    }
+
+    /**
+     * Stop gathering events and deliver all the buffered events in batches
+     */
+    public void close() {
+        synchronized (this) {
+            this.closed = true;
+        }
+        synchronized (this.deliveryLock) {
+            List<Event> events;
+            while ((events = this.poll()) != null)
+                this.deliver(events);
+        }
+    }
+
+    private synchronized List<Event> poll() {
+        if (this.buffer.isEmpty())
+            return null;
+        final List<Event> events = Lists.newArrayListWithCapacity(Math.min(this.buffer.size(), this.maxSize));
+        while (!this.buffer.isEmpty() && events.size() < this.maxSize)
+            events.add(this.buffer.pollFirst());
+        return events;
+    }
+
+    private void deliver(final List<Event> events) {
+        try {
+            this.invoker.invoke(this.listener, Collections.unmodifiableList(events));
+        } catch (final Throwable e) {
+            FocessQQ.getLogger().thrLang("exception-handle-batch-event", e, this.toString());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return this.listener.getClass().getName() + "#" + this.method.getName();
+    }
+
+    /**
+     * Lazily create the scheduler delivering the batches in order
+     */
+    private static class Delivery {
+        private static final Scheduler SCHEDULER = Schedulers.newFocessScheduler(FocessQQ.getMainPlugin(), "BatchListener");
+    }
+}
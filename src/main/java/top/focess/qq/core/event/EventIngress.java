@@ -0,0 +1,466 @@
+package top.focess.qq.core.event;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import top.focess.qq.FocessQQ;
+import top.focess.qq.api.event.Event;
+import top.focess.qq.api.event.IngressPolicy;
+import top.focess.qq.api.event.chat.ChatEvent;
+import top.focess.qq.api.event.message.MessageEvent;
+import top.focess.qq.core.jfr.FlightEvents;
+import top.focess.qq.core.metrics.Metrics;
+import top.focess.qq.core.util.Trace;
+import top.focess.scheduler.Scheduler;
+import top.focess.util.option.Option;
+import top.focess.util.option.type.IntegerOptionType;
+import top.focess.util.option.type.OptionType;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The bounded ingress queue in front of the schedulers handling asynchronous events. It counts the events which are admitted but not finished, and sheds load by the IngressPolicy when the count reaches the capacity.
+ * <p>
+ * The events waiting to start are kept in one queue per event class. Admitting an event only touches the counter and the queue of its class, and an event is removed from its queue in constant time when it starts.
+ * An event submitted by the {@link IngressPolicy#BLOCK} policy is never dropped to make room for another event.
+ */
+public final class EventIngress {
+
+    private static final int DEFAULT_CAPACITY = 10000;
+
+    private static final int SAMPLE_RATE = 100;
+
+    /**
+     * The count of the dispatched events of each event class, the rate is the events per second
+     */
+    private static final ClassValue<LongAdder> DISPATCHED = new ClassValue<LongAdder>() {
+        @Override
+        protected LongAdder computeValue(@NotNull final Class<?> type) {
+            return Metrics.counter("focess_events_total", "The count of the dispatched events", "event", type.getName());
+        }
+    };
+
+    private static final ThreadLocal<Boolean> DISPATCHING = ThreadLocal.withInitial(() -> false);
+
+    private final int capacity;
+
+    private final IngressPolicy policy;
+
+    private final IngressPolicy messagePolicy;
+
+    private final Dispatcher dispatcher;
+
+    /**
+     * The admitted events which are not started yet, by the event class. A queue is removed once it is empty, so it does not keep the event classes of the unloaded plugins.
+     */
+    private final Map<Class<?>, TypeQueue> queues = Maps.newConcurrentMap();
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * The count of the admitted events which are not finished
+     */
+    private final AtomicInteger depth = new AtomicInteger();
+
+    private final LongAdder dropped = new LongAdder();
+
+    private final Map<Class<?>, LongAdder> droppedByType = Maps.newConcurrentMap();
+
+    //the threads blocked by the BLOCK policy wait on this lock
+    private final Object blockLock = new Object();
+
+    //modified only with the blockLock held
+    private volatile int blocked;
+
+    /**
+     * Create the ingress
+     *
+     * @param capacity      the max count of the admitted events which are not finished
+     * @param policy        the policy of the events which are not chat or message events
+     * @param messagePolicy the policy of the {@link ChatEvent}s and the {@link MessageEvent}s
+     * @param dispatcher    the dispatcher submitting the events to the listeners
+     */
+    public EventIngress(final int capacity, @NotNull final IngressPolicy policy, @NotNull final IngressPolicy messagePolicy, @NotNull final Dispatcher dispatcher) {
+        this.capacity = Math.max(capacity, 1);
+        this.policy = policy;
+        this.messagePolicy = messagePolicy;
+        this.dispatcher = dispatcher;
+    }
+
+    /**
+     * Create the ingress by the startup option --ingress &lt;capacity&gt; &lt;policy&gt;.
+     * Without the option, the capacity is 10000, the chat and message events use {@link IngressPolicy#DROP_OLDEST} so a message storm never blocks the bot threads, and the other events use {@link IngressPolicy#BLOCK}.
+     *
+     * @param dispatcher the dispatcher submitting the events to the listeners
+     * @return the ingress
+     */
+    @NotNull
+    public static EventIngress newEventIngress(@NotNull final Dispatcher dispatcher) {
+        final Option option = FocessQQ.getOptions() == null ? null : FocessQQ.getOptions().get("ingress");
+        if (option == null)
+            return new EventIngress(DEFAULT_CAPACITY, IngressPolicy.BLOCK, IngressPolicy.DROP_OLDEST, dispatcher);
+        final int capacity = option.get(IntegerOptionType.INTEGER_OPTION_TYPE);
+        final String policy = option.get(OptionType.DEFAULT_OPTION_TYPE);
+        IngressPolicy ingressPolicy;
+        try {
+            ingressPolicy = IngressPolicy.valueOf(policy.toUpperCase());
+        } catch (final IllegalArgumentException e) {
+            ingressPolicy = IngressPolicy.BLOCK;
+        }
+        return new EventIngress(capacity, ingressPolicy, ingressPolicy, dispatcher);
+    }
+
+    /**
+     * Admit the event and run it in the scheduler, or drop it by the policy if the queue is full
+     *
+     * @param scheduler the scheduler to run the event
+     * @param event     the event need to be submitted
+     * @param <T>       the event type
+     * @return a CompletableFuture which is completed with the event after all the listeners finish, or completed with null if the event is dropped
+     */
+    @NotNull
+    public <T extends Event> CompletableFuture<T> submit(@NotNull final Scheduler scheduler, @NotNull final T event) {
+        final Pending<T> pending = new Pending<>(event, this.sequence.getAndIncrement());
+        final FlightEvents.EventSubmit jfr = FlightEvents.AVAILABLE ? new FlightEvents.EventSubmit() : null;
+        if (jfr != null)
+            jfr.begin();
+        if (!this.admit(pending)) {
+            this.drop(event);
+            pending.future.complete(null);
+            if (jfr != null) {
+                jfr.eventClass = event.getClass();
+                jfr.async = true;
+                jfr.dropped = true;
+                jfr.commit();
+            }
+            return pending.future;
+        }
+        if (jfr != null) {
+            jfr.end();
+            if (jfr.shouldCommit()) {
+                jfr.eventClass = event.getClass();
+                jfr.async = true;
+                jfr.commit();
+            }
+        }
+        final long queued = System.nanoTime();
+        try {
+            scheduler.run(() -> {
+                if (!this.start(pending))
+                    return;
+                Trace.record("queue", event.getClass(), queued);
+                try {
+                    this.dispatch(event, pending.future);
+                } finally {
+                    this.finish();
+                }
+            }, "submit-" + event.getClass().getName());
+        } catch (final Exception e) {
+            if (this.start(pending))
+                this.finish();
+            pending.future.completeExceptionally(e);
+        }
+        return pending.future;
+    }
+
+    /**
+     * Submit the event to all the listeners in the current thread, and complete the future
+     *
+     * @param event  the event need to be submitted
+     * @param future the future of the event
+     * @param <T>    the event type
+     */
+    public <T extends Event> void dispatch(@NotNull final T event, @NotNull final CompletableFuture<T> future) {
+        DISPATCHED.get(event.getClass()).increment();
+        final boolean dispatching = DISPATCHING.get();
+        DISPATCHING.set(true);
+        final FlightEvents.EventDispatch jfr = FlightEvents.AVAILABLE ? new FlightEvents.EventDispatch() : null;
+        if (jfr != null)
+            jfr.begin();
+        try (Trace.Span ignored = Trace.span("dispatch", event.getClass())) {
+            this.dispatcher.dispatch(event);
+            future.complete(event);
+        } catch (final Throwable e) {
+            future.completeExceptionally(e);
+        } finally {
+            DISPATCHING.set(dispatching);
+            if (jfr != null) {
+                jfr.eventClass = event.getClass();
+                jfr.commit();
+            }
+        }
+    }
+
+    /**
+     * Take one place in the ingress for the event, making room by the policy if the ingress is full, and queue the event
+     *
+     * @param pending the pending event
+     * @return true if the event is admitted, false if the event should be dropped
+     */
+    private boolean admit(final Pending<?> pending) {
+        final Class<?> cls = pending.event.getClass();
+        final IngressPolicy policy = this.getPolicy(cls);
+        while (true) {
+            final int depth = this.depth.get();
+            // the threads handling events are never blocked, their events are admitted directly
+            if (depth < this.capacity || (policy == IngressPolicy.BLOCK && DISPATCHING.get())) {
+                if (this.depth.compareAndSet(depth, depth + 1))
+                    break;
+                continue;
+            }
+            switch (policy) {
+                case BLOCK:
+                    if (!this.await())
+                        return false;
+                    continue;
+                case DROP_BY_TYPE:
+                    if (this.dropOldest(this.queues.get(cls)))
+                        continue;
+                    // fall through
+                case DROP_OLDEST:
+                    if (this.dropOldest())
+                        continue;
+                    return false;
+                default:
+                    return false;
+            }
+        }
+        this.enqueue(pending);
+        return true;
+    }
+
+    /**
+     * Wait until there is room in the ingress
+     *
+     * @return true if there is room, false if the thread is interrupted
+     */
+    private boolean await() {
+        synchronized (this.blockLock) {
+            this.blocked++;
+            try {
+                while (this.depth.get() >= this.capacity)
+                    this.blockLock.wait();
+                return true;
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } finally {
+                this.blocked--;
+            }
+        }
+    }
+
+    private void enqueue(final Pending<?> pending) {
+        final Class<?> cls = pending.event.getClass();
+        while (true) {
+            final TypeQueue queue = this.queues.computeIfAbsent(cls, TypeQueue::new);
+            synchronized (queue) {
+                // the queue is removed once it is empty, add the event to a new one
+                if (queue.removed)
+                    continue;
+                queue.pending.add(pending);
+                pending.queue = queue;
+                return;
+            }
+        }
+    }
+
+    private void dequeue(final Pending<?> pending) {
+        final TypeQueue queue = pending.queue;
+        synchronized (queue) {
+            queue.pending.remove(pending);
+            if (queue.pending.isEmpty()) {
+                queue.removed = true;
+                this.queues.remove(queue.cls, queue);
+            }
+        }
+    }
+
+    /**
+     * Drop the oldest queued event among the events which are not submitted by the {@link IngressPolicy#BLOCK} policy
+     *
+     * @return true if an event is dropped, false if there is no such event
+     */
+    private boolean dropOldest() {
+        while (true) {
+            TypeQueue oldest = null;
+            long sequence = Long.MAX_VALUE;
+            for (final TypeQueue queue : this.queues.values()) {
+                if (this.getPolicy(queue.cls) == IngressPolicy.BLOCK)
+                    continue;
+                final Pending<?> head = queue.peek();
+                if (head != null && head.sequence < sequence) {
+                    oldest = queue;
+                    sequence = head.sequence;
+                }
+            }
+            if (oldest == null)
+                return false;
+            if (this.dropOldest(oldest))
+                return true;
+        }
+    }
+
+    /**
+     * Drop the oldest queued event in the queue
+     *
+     * @param queue the queue of one event class, null if there is no event of the class waiting
+     * @return true if an event is dropped, false if there is no event waiting in the queue
+     */
+    private boolean dropOldest(@Nullable final TypeQueue queue) {
+        if (queue == null || this.getPolicy(queue.cls) == IngressPolicy.BLOCK)
+            return false;
+        Pending<?> dropped = null;
+        synchronized (queue) {
+            final Iterator<Pending<?>> iterator = queue.pending.iterator();
+            while (iterator.hasNext()) {
+                final Pending<?> pending = iterator.next();
+                // the event which is starting now is removed by itself
+                if (pending.taken.compareAndSet(false, true)) {
+                    dropped = pending;
+                    break;
+                }
+            }
+        }
+        if (dropped == null)
+            return false;
+        this.dequeue(dropped);
+        this.depth.decrementAndGet();
+        this.drop(dropped.event);
+        dropped.future.complete(null);
+        return true;
+    }
+
+    private void drop(final Event event) {
+        this.dropped.increment();
+        this.droppedByType.computeIfAbsent(event.getClass(), k -> new LongAdder()).increment();
+        if (this.getPolicy(event.getClass()) == IngressPolicy.SAMPLE && this.dropped.sum() % SAMPLE_RATE == 1)
+            FocessQQ.getLogger().infoLang("event-ingress-sample", this.dropped.sum(), event.toString());
+    }
+
+    /**
+     * Mark the event started
+     *
+     * @param pending the pending event
+     * @return true if the event is not dropped, false otherwise
+     */
+    private boolean start(final Pending<?> pending) {
+        if (!pending.taken.compareAndSet(false, true))
+            return false;
+        this.dequeue(pending);
+        return true;
+    }
+
+    private void finish() {
+        this.depth.decrementAndGet();
+        if (this.blocked > 0)
+            synchronized (this.blockLock) {
+                this.blockLock.notifyAll();
+            }
+    }
+
+    /**
+     * Get the policy of the event class
+     *
+     * @param cls the event class
+     * @return the policy of the event class
+     */
+    @NotNull
+    public IngressPolicy getPolicy(@NotNull final Class<?> cls) {
+        return ChatEvent.class.isAssignableFrom(cls) || MessageEvent.class.isAssignableFrom(cls) ? this.messagePolicy : this.policy;
+    }
+
+    public int getDepth() {
+        return this.depth.get();
+    }
+
+    public int getCapacity() {
+        return this.capacity;
+    }
+
+    /**
+     * Get the policy of the events which are not chat or message events
+     *
+     * @return the policy of the events which are not chat or message events
+     */
+    @NotNull
+    public IngressPolicy getPolicy() {
+        return this.policy;
+    }
+
+    /**
+     * Get the policy of the chat and message events
+     *
+     * @return the policy of the chat and message events
+     */
+    @NotNull
+    public IngressPolicy getMessagePolicy() {
+        return this.messagePolicy;
+    }
+
+    public long getDropped() {
+        return this.dropped.sum();
+    }
+
+    @NotNull
+    public Map<Class<?>, Long> getDroppedByType() {
+        final Map<Class<?>, Long> ret = Maps.newHashMap();
+        this.droppedByType.forEach((k, v) -> ret.put(k, v.sum()));
+        return ret;
+    }
+
+    /**
+     * Submit the event to all the listeners in the current thread
+     */
+    @FunctionalInterface
+    public interface Dispatcher {
+
+        void dispatch(Event event) throws Exception;
+    }
+
+    private static class TypeQueue {
+
+        private final Class<?> cls;
+
+        //in admission order, the events are removed in constant time when they start
+        private final Set<Pending<?>> pending = Sets.newLinkedHashSet();
+
+        private boolean removed;
+
+        private TypeQueue(final Class<?> cls) {
+            this.cls = cls;
+        }
+
+        @Nullable
+        private synchronized Pending<?> peek() {
+            return this.pending.isEmpty() ? null : this.pending.iterator().next();
+        }
+    }
+
+    private static class Pending<T extends Event> {
+
+        private final T event;
+
+        private final long sequence;
+
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+
+        //set by the first of starting and dropping
+        private final AtomicBoolean taken = new AtomicBoolean();
+
+        private TypeQueue queue;
+
+        private Pending(final T event, final long sequence) {
+            this.event = event;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package top.focess.qq.core.event;
+
+import org.jetbrains.annotations.NotNull;
+import top.focess.qq.FocessQQ;
+import top.focess.qq.api.event.Listener;
+
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * Invoke one listener method directly. The implementation is generated once when the listener method is registered.
+ *
+ * @param <T> the argument type of the listener method, the Event for an event listener method or the List of Event for a batch event listener method
+ */
+@FunctionalInterface
+public interface EventInvoker<T> {
+
+    void invoke(Listener listener, T argument) throws Throwable;
+
+    /**
+     * Compile the listener method into an EventInvoker.
+     * The method is bound by LambdaMetafactory if the listener class is in the same module as the framework, for example the classes of a PluginClassLoader are not.
+     * Otherwise it is invoked by a {@link HandleInvoker}, and only if the method cannot be unreflected, it falls back to the reflection invoker.
+     * All of them throw the same exceptions.
+     *
+     * @param method the listener method which has only one argument
+     * @param <T>    the argument type of the listener method
+     * @return the EventInvoker of this method
+     */
+    @NotNull
+    @SuppressWarnings("unchecked")
+    static <T> EventInvoker<T> compile(@NotNull final Method method) {
+        final boolean isStatic = Modifier.isStatic(method.getModifiers());
+        if (!isStatic)
+            try {
+                final Class<?> listenerClass = method.getDeclaringClass();
+                final MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(listenerClass, MethodHandles.lookup());
+                // LambdaMetafactory refuses the lookup without full privilege
+                if ((lookup.lookupModes() & MethodHandles.Lookup.MODULE) != 0) {
+                    final MethodHandle handle = lookup.unreflect(method);
+                    return (EventInvoker<T>) LambdaMetafactory.metafactory(
+                            lookup,
+                            "invoke",
+                            MethodType.methodType(EventInvoker.class),
+                            MethodType.methodType(void.class, Listener.class, Object.class),
+                            handle,
+                            MethodType.methodType(void.class, listenerClass, method.getParameterTypes()[0])
+                    ).getTarget().invokeExact();
+                }
+            } catch (final Throwable e) {
+                FocessQQ.getLogger().debugLang("debug-compile-listener-failed", method.toString(), e.toString());
+            }
+        method.setAccessible(true);
+        try {
+            MethodHandle handle = MethodHandles.lookup().unreflect(method);
+            if (isStatic)
+                handle = MethodHandles.dropArguments(handle, 0, Object.class);
+            return new HandleInvoker<>(handle.asType(MethodType.methodType(void.class, Object.class, Object.class)));
+        } catch (final IllegalAccessException | RuntimeException e) {
+            FocessQQ.getLogger().debugLang("debug-unreflect-listener-failed", method.toString(), e.toString());
+        }
+        return (listener, argument) -> {
+            try {
+                method.invoke(listener, argument);
+            } catch (final InvocationTargetException e) {
+                throw e.getCause();
+            }
+        };
+    }
+
+    /**
+     * Invoke the listener method by a MethodHandle, which works across the class loaders
+     *
+     * @param <T> the argument type of the listener method
+     */
+    final class HandleInvoker<T> implements EventInvoker<T> {
+
+        private final MethodHandle handle;
+
+        private HandleInvoker(final MethodHandle handle) {
+            this.handle = handle;
+        }
+
+        @Override
+        public void invoke(final Listener listener, final T argument) throws Throwable {
+            this.handle.invokeExact((Object) listener, (Object) argument);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package top.focess.qq.core.event;
+
+import org.jetbrains.annotations.NotNull;
+import top.focess.qq.api.event.Event;
+import top.focess.qq.api.event.EventHandler;
+import top.focess.qq.api.event.Listener;
+import top.focess.qq.core.util.LatencyHistogram;
+
+import java.lang.reflect.Method;
+
+/**
+ * Represent a listener method registered in a ListenerHandler
+ */
+public final class RegisteredListener {
+
+    private final Listener listener;
+    private final Method method;
+    private final EventHandler handler;
+    private final EventInvoker<Event> invoker;
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    public RegisteredListener(@NotNull final Listener listener, @NotNull final Method method, @NotNull final EventHandler handler) {
+        this.listener = listener;
+        this.method = method;
+        this.handler = handler;
+        this.invoker = EventInvoker.compile(method);
+    }
+
+    public Listener getListener() {
+        return this.listener;
+    }
+
+    public Method getMethod() {
+        return this.method;
+    }
+
+    public EventHandler getHandler() {
+        return this.handler;
+    }
+
+    public LatencyHistogram getLatency() {
+        return this.latency;
+    }
+
+    public void invoke(final Event event) throws Throwable {
+        this.invoker.invoke(this.listener, event);
+    }
+
+    @Override
+    public String toString() {
+        return this.listener.getClass().getName() + "#" + this.method.getName();
+    }
+}
@@ -0,0 +1,205 @@
+package top.focess.qq.core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * The JFR events of the key operations of the framework. They cost almost nothing unless a recording is started by {@link FlightRecording} or any other JFR recording.
+ * <p>
+ * The events are used as: create the event, call {@link Event#begin()} before the operation, fill the fields and call {@link Event#commit()} after the operation.
+ * The events are only created if {@link #AVAILABLE} is true, so that the framework still runs on the JVMs without the jdk.jfr module.
+ */
+public final class FlightEvents {
+
+    /**
+     * Whether the jdk.jfr module is present. This class does not extend Event, so it is always safe to read this field
+     */
+    public static final boolean AVAILABLE = ModuleLayer.boot().findModule("jdk.jfr").isPresent();
+
+    /**
+     * The default threshold of the events happening on every event, message or permission check, so that only the slow ones are recorded by the other recordings.
+     * {@link FlightRecording} records all of them.
+     */
+    public static final String HOT_THRESHOLD = "1 ms";
+
+    private FlightEvents() {
+    }
+
+    @Name("top.focess.qq.EventSubmit")
+    @Label("Event Submit")
+    @Description("Submit an event, the duration of an asynchronous submit is the time to be admitted by the ingress")
+    @Category({"FocessQQ", "Event"})
+    @StackTrace(false)
+    @Threshold(HOT_THRESHOLD)
+    public static class EventSubmit extends Event {
+
+        @Label("Event Class")
+        public Class<?> eventClass;
+
+        @Label("Asynchronous")
+        public boolean async;
+
+        @Label("Dropped")
+        public boolean dropped;
+    }
+
+    @Name("top.focess.qq.EventDispatch")
+    @Label("Event Dispatch")
+    @Description("Dispatch an event to all of its listeners")
+    @Category({"FocessQQ", "Event"})
+    @StackTrace(false)
+    @Threshold(HOT_THRESHOLD)
+    public static class EventDispatch extends Event {
+
+        @Label("Event Class")
+        public Class<?> eventClass;
+    }
+
+    @Name("top.focess.qq.ListenerInvoke")
+    @Label("Listener Invoke")
+    @Description("Invoke one listener with an event")
+    @Category({"FocessQQ", "Event"})
+    @StackTrace(false)
+    @Threshold(HOT_THRESHOLD)
+    public static class ListenerInvoke extends Event {
+
+        @Label("Event Class")
+        public Class<?> eventClass;
+
+        @Label("Listener")
+        public String listener;
+
+        @Label("Plugin")
+        public String plugin;
+    }
+
+    @Name("top.focess.qq.CommandParse")
+    @Label("Command Parse")
+    @Description("Split a command line into the command name and arguments")
+    @Category({"FocessQQ", "Command"})
+    @StackTrace(false)
+    @Threshold(HOT_THRESHOLD)
+    public static class CommandParse extends Event {
+
+        @Label("Command")
+        @Description("The command name, the arguments are not recorded")
+        public String command;
+
+        @Label("Arguments")
+        public int arguments;
+    }
+
+    @Name("top.focess.qq.CommandExecute")
+    @Label("Command Execute")
+    @Description("Execute a command, including the CommandPrepostEvent and the CommandExecutedEvent")
+    @Category({"FocessQQ", "Command"})
+    @StackTrace(false)
+    public static class CommandExecute extends Event {
+
+        @Label("Command")
+        public String command;
+
+        @Label("Plugin")
+        public String plugin;
+
+        @Label("Result")
+        public String result;
+    }
+
+    @Name("top.focess.qq.PermissionCheck")
+    @Label("Permission Check")
+    @Description("Check a permission against the caller class and all the plugins in the stack")
+    @Category({"FocessQQ", "Permission"})
+    @StackTrace(false)
+    @Threshold(HOT_THRESHOLD)
+    public static class PermissionCheck extends Event {
+
+        @Label("Permission")
+        public String permission;
+
+        @Label("Granted")
+        public boolean granted;
+    }
+
+    @Name("top.focess.qq.PluginLoad")
+    @Label("Plugin Load")
+    @Description("Load and enable a plugin from its file")
+    @Category({"FocessQQ", "Plugin"})
+    public static class PluginLoad extends Event {
+
+        @Label("File")
+        public String file;
+
+        @Label("Plugin")
+        public String plugin;
+
+        @Label("Loaded")
+        public boolean loaded;
+    }
+
+    @Name("top.focess.qq.PluginUnload")
+    @Label("Plugin Unload")
+    @Description("Disable a plugin and release all of its resources")
+    @Category({"FocessQQ", "Plugin"})
+    public static class PluginUnload extends Event {
+
+        @Label("Plugin")
+        public String plugin;
+    }
+
+    @Name("top.focess.qq.BotLogin")
+    @Label("Bot Login")
+    @Description("Log in a bot")
+    @Category({"FocessQQ", "Bot"})
+    public static class BotLogin extends Event {
+
+        @Label("Bot")
+        public long bot;
+
+        @Label("Protocol")
+        public String protocol;
+
+        @Label("Succeeded")
+        public boolean succeeded;
+    }
+
+    @Name("top.focess.qq.MessageSend")
+    @Label("Message Send")
+    @Description("Send a message by a bot")
+    @Category({"FocessQQ", "Bot"})
+    @StackTrace(false)
+    @Threshold(HOT_THRESHOLD)
+    public static class MessageSend extends Event {
+
+        @Label("Bot")
+        public long bot;
+
+        @Label("Target")
+        public long target;
+    }
+
+    @Name("top.focess.qq.MessageUpload")
+    @Label("Message Upload")
+    @Description("Upload an image or an audio by a bot")
+    @Category({"FocessQQ", "Bot"})
+    @StackTrace(false)
+    public static class MessageUpload extends Event {
+
+        @Label("Bot")
+        public long bot;
+
+        @Label("Target")
+        public long target;
+
+        @Label("Type")
+        public String type;
+
+        @Label("Succeeded")
+        public boolean succeeded;
+    }
+}
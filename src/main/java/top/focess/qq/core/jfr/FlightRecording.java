@@ -0,0 +1,98 @@
+package top.focess.qq.core.jfr;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Event;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.Duration;
+import java.util.Date;
+
+/**
+ * The continuous JFR recording controlled by the debug jfr command. It uses the low overhead default settings of the JVM with all the {@link FlightEvents} enabled
+ * without threshold, and keeps the events of the last hour. It is only available if {@link FlightEvents#AVAILABLE} is true.
+ */
+public final class FlightRecording {
+
+    private static final Duration MAX_AGE = Duration.ofHours(1);
+
+    private static final File FOLDER = new File("plugins/Main", "jfr");
+
+    private static Recording recording;
+
+    private FlightRecording() {
+    }
+
+    /**
+     * Start the recording
+     *
+     * @return true if the recording is started, false if it is already running
+     * @throws IOException    if the default settings cannot be read
+     * @throws ParseException if the default settings cannot be parsed
+     */
+    public static synchronized boolean start() throws IOException, ParseException {
+        if (isRunning())
+            return false;
+        recording = new Recording(Configuration.getConfiguration("default"));
+        recording.setName("FocessQQ");
+        recording.setToDisk(true);
+        recording.setMaxAge(MAX_AGE);
+        for (final Class<?> cls : FlightEvents.class.getClasses())
+            recording.enable(cls.asSubclass(Event.class)).withThreshold(Duration.ZERO);
+        recording.start();
+        return true;
+    }
+
+    /**
+     * Dump the recorded events to a new file and keep recording
+     *
+     * @return the file, or null if the recording is not running
+     * @throws IOException if an I/O error occurs
+     */
+    @Nullable
+    public static synchronized File dump() throws IOException {
+        if (!isRunning())
+            return null;
+        final File file = newFile();
+        recording.dump(file.toPath());
+        return file;
+    }
+
+    /**
+     * Stop the recording and dump the recorded events to a new file
+     *
+     * @return the file, or null if the recording is not running
+     * @throws IOException if an I/O error occurs
+     */
+    @Nullable
+    public static synchronized File stop() throws IOException {
+        if (!isRunning())
+            return null;
+        try {
+            recording.stop();
+            final File file = newFile();
+            recording.dump(file.toPath());
+            return file;
+        } finally {
+            recording.close();
+            recording = null;
+        }
+    }
+
+    public static synchronized boolean isRunning() {
+        return recording != null && recording.getState() == RecordingState.RUNNING;
+    }
+
+    @NotNull
+    private static File newFile() throws IOException {
+        if (!FOLDER.exists() && !FOLDER.mkdirs())
+            throw new IOException("Cannot create folder " + FOLDER.getPath());
+        return new File(FOLDER, "focess-" + new SimpleDateFormat("yyyy-MM-dd-HH-mm-ss").format(new Date()) + ".jfr");
+    }
+}
@@ -34,7 +34,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 public class ChatListener implements Listener {
     private static boolean pauseMode;
     public static final Map<CommandSender, Queue<Pair<IOHandler, Task>>> QUESTS = Maps.newConcurrentMap();
-    private static final Scheduler EXECUTOR = Schedulers.newThreadPoolScheduler(FocessQQ.getMainPlugin(), 5, true, "ChatListener");
+    private static final Scheduler EXECUTOR = Schedulers.newInternalScheduler(FocessQQ.getMainPlugin(), 5, true, "ChatListener");
 
     /**
      * Register input String listener. (Used to communicate with CommandSender with ioHandler)
@@ -76,11 +76,10 @@ public class ChatListener implements Listener {
         IOHandler.getConsoleIoHandler().outputLang("message-chain");
         IOHandler.getConsoleIoHandler().output(event.getMessage().toString());
         final StrangerMessageEvent strangerMessageEvent = new StrangerMessageEvent(event.getBot(), event.getMessage(), event.getStranger(), event.getSource());
-        try {
-            EventManager.submit(strangerMessageEvent);
-        } catch (final EventSubmitException e) {
+        EventManager.submitAsync(event.getStranger().getId(), strangerMessageEvent).exceptionally(e -> {
             FocessQQ.getLogger().thrLang("exception-submit-stranger-message-event", e);
-        }
+            return null;
+        });
     }
 
     @EventHandler(priority = EventPriority.HIGHER)
@@ -93,27 +92,27 @@ public class ChatListener implements Listener {
         final CommandSender sender = event.getMember().getCommandSender();
         final AtomicBoolean flag = new AtomicBoolean(false);
         updateInput(sender, event.getMessage(), flag);
-        if (!flag.get())
+        if (flag.get())
+            return;
+        final String command = event.getMessage().toString();
+        if (!CommandLine.isCommand(command)) {
+            submitGroupMessageEvent(event);
+            return;
+        }
+        try {
+            final Future<CommandResult> ret = CommandLine.exec(sender, command);
+            EXECUTOR.run(() -> {
             try {
-                final Future<CommandResult> ret = CommandLine.exec(sender, event.getMessage().toString());
-                EXECUTOR.run(() -> {
-                try {
-                    if (ret.get(10, TimeUnit.MINUTES) == CommandResult.NONE) {
-                        final GroupMessageEvent groupMessageEvent = new GroupMessageEvent(event.getBot(), event.getMember(), event.getMessage(), event.getSource());
-                        try {
-                            EventManager.submit(groupMessageEvent);
-                        } catch (final Exception e) {
-                            FocessQQ.getLogger().thrLang("exception-submit-group-message-event", e);
-                        }
-                    }
-                } catch (final Exception e) {
-                    if (!(e.getCause() instanceof InputTimeoutException))
-                        FocessQQ.getLogger().thrLang("exception-exec-group-command", e);
-                }
-                },"command-group-exec");
+                if (ret.get(10, TimeUnit.MINUTES) == CommandResult.NONE)
+                    submitGroupMessageEvent(event);
             } catch (final Exception e) {
-                FocessQQ.getLogger().thrLang("exception-exec-group-command", e);
+                if (!(e.getCause() instanceof InputTimeoutException))
+                    FocessQQ.getLogger().thrLang("exception-exec-group-command", e);
             }
+            },"command-group-exec");
+        } catch (final Exception e) {
+            FocessQQ.getLogger().thrLang("exception-exec-group-command", e);
+        }
     }
 
     @EventHandler(priority = EventPriority.HIGHER)
@@ -126,27 +125,43 @@ public class ChatListener implements Listener {
         final CommandSender sender = event.getFriend().getCommandSender();
         final AtomicBoolean flag = new AtomicBoolean(false);
         updateInput(sender, event.getMessage(), flag);
-        if (!flag.get())
+        if (flag.get())
+            return;
+        final String command = event.getMessage().toString();
+        if (!CommandLine.isCommand(command)) {
+            submitFriendMessageEvent(event);
+            return;
+        }
+        try {
+            final Future<CommandResult> ret = CommandLine.exec(sender, command);
+            EXECUTOR.run(() -> {
             try {
-                final Future<CommandResult> ret = CommandLine.exec(sender, event.getMessage().toString());
-                EXECUTOR.run(() -> {
-                try {
-                    if (ret.get(10, TimeUnit.MINUTES) == CommandResult.NONE) {
-                        final FriendMessageEvent friendMessageEvent = new FriendMessageEvent(event.getBot(), event.getFriend(), event.getMessage(), event.getSource());
-                        try {
-                            EventManager.submit(friendMessageEvent);
-                        } catch (final Exception e) {
-                            FocessQQ.getLogger().thrLang("exception-submit-friend-message-event", e);
-                        }
-                    }
-                } catch (final Exception e) {
-                    if (!(e.getCause() instanceof InputTimeoutException))
-                        FocessQQ.getLogger().thrLang("exception-exec-friend-command", e);
-                }
-                }, "command-friend-exec");
+                if (ret.get(10, TimeUnit.MINUTES) == CommandResult.NONE)
+                    submitFriendMessageEvent(event);
             } catch (final Exception e) {
-                FocessQQ.getLogger().thrLang("exception-exec-friend-command", e);
+                if (!(e.getCause() instanceof InputTimeoutException))
+                    FocessQQ.getLogger().thrLang("exception-exec-friend-command", e);
             }
+            }, "command-friend-exec");
+        } catch (final Exception e) {
+            FocessQQ.getLogger().thrLang("exception-exec-friend-command", e);
+        }
+    }
+
+    private static void submitGroupMessageEvent(final GroupChatEvent event) {
+        final GroupMessageEvent groupMessageEvent = new GroupMessageEvent(event.getBot(), event.getMember(), event.getMessage(), event.getSource());
+        EventManager.submitAsync(event.getGroup().getId(), groupMessageEvent).exceptionally(e -> {
+            FocessQQ.getLogger().thrLang("exception-submit-group-message-event", e);
+            return null;
+        });
+    }
+
+    private static void submitFriendMessageEvent(final FriendChatEvent event) {
+        final FriendMessageEvent friendMessageEvent = new FriendMessageEvent(event.getBot(), event.getFriend(), event.getMessage(), event.getSource());
+        EventManager.submitAsync(event.getFriend().getId(), friendMessageEvent).exceptionally(e -> {
+            FocessQQ.getLogger().thrLang("exception-submit-friend-message-event", e);
+            return null;
+        });
     }
 
     @EventHandler(priority = EventPriority.HIGHEST)
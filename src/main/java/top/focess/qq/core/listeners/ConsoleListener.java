@@ -25,7 +25,7 @@ import java.util.concurrent.TimeUnit;
 public class ConsoleListener implements Listener {
 
     public static final Queue<Pair<IOHandler, Task>> QUESTS = Queues.newLinkedBlockingQueue();
-    private static final Scheduler EXECUTOR = Schedulers.newThreadPoolScheduler(FocessQQ.getMainPlugin(), 5, true, "ConsoleListener");
+    private static final Scheduler EXECUTOR = Schedulers.newInternalScheduler(FocessQQ.getMainPlugin(), 5, true, "ConsoleListener");
 
     /**
      * Register input String listener. (Used to communicate with CommandSender with ioHandler)
@@ -51,11 +51,10 @@ public class ConsoleListener implements Listener {
             try {
                 if (ret.get(10, TimeUnit.MINUTES) == CommandResult.NONE) {
                     final ConsoleMessageEvent consoleMessageEvent = new ConsoleMessageEvent(event.getMessage());
-                    try {
-                        EventManager.submit(consoleMessageEvent);
-                    } catch (final Exception e) {
+                    EventManager.submitAsync(consoleMessageEvent).exceptionally(e -> {
                         FocessQQ.getLogger().thrLang("exception-submit-console-message-event", e);
-                    }
+                        return null;
+                    });
                 }
             } catch (final Exception e) {
                 if (!(e.getCause() instanceof InputTimeoutException))
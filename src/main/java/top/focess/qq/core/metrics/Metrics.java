@@ -0,0 +1,149 @@
+package top.focess.qq.core.metrics;
+
+import com.google.common.collect.Maps;
+import org.jetbrains.annotations.NotNull;
+import top.focess.qq.core.util.LatencyHistogram;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * The registry of the runtime metrics. A metric is identified by its name and its labels, and registering the same metric twice returns the registered one.
+ * The metrics are exported in the Prometheus text format, and the latencies are exported as summaries in seconds.
+ */
+public final class Metrics {
+
+    private static final Map<String, Family> FAMILIES = Maps.newConcurrentMap();
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+    private Metrics() {
+    }
+
+    /**
+     * Get or register a counter
+     *
+     * @param name   the name of the metric
+     * @param help   the description of the metric
+     * @param labels the label names and values in pairs
+     * @return the counter
+     */
+    @NotNull
+    public static LongAdder counter(@NotNull final String name, @NotNull final String help, @NotNull final String... labels) {
+        return (LongAdder) family(name, help, Type.COUNTER).metrics.computeIfAbsent(labels(labels), k -> new LongAdder());
+    }
+
+    /**
+     * Get or register a latency summary
+     *
+     * @param name   the name of the metric
+     * @param help   the description of the metric
+     * @param labels the label names and values in pairs
+     * @return the histogram recording the latencies in nanoseconds
+     */
+    @NotNull
+    public static LatencyHistogram histogram(@NotNull final String name, @NotNull final String help, @NotNull final String... labels) {
+        return (LatencyHistogram) family(name, help, Type.SUMMARY).metrics.computeIfAbsent(labels(labels), k -> new LatencyHistogram());
+    }
+
+    /**
+     * Register a gauge, the value is read when exporting
+     *
+     * @param name     the name of the metric
+     * @param help     the description of the metric
+     * @param supplier the supplier of the value
+     * @param labels   the label names and values in pairs
+     */
+    public static void gauge(@NotNull final String name, @NotNull final String help, @NotNull final LongSupplier supplier, @NotNull final String... labels) {
+        family(name, help, Type.GAUGE).metrics.put(labels(labels), supplier);
+    }
+
+    /**
+     * Remove a metric
+     *
+     * @param name   the name of the metric
+     * @param labels the label names and values in pairs
+     */
+    public static void remove(@NotNull final String name, @NotNull final String... labels) {
+        final Family family = FAMILIES.get(name);
+        if (family != null)
+            family.metrics.remove(labels(labels));
+    }
+
+    /**
+     * Export all the metrics in the Prometheus text format
+     *
+     * @param writer the writer to export to
+     * @throws IOException if an I/O error occurs
+     */
+    public static void export(@NotNull final Writer writer) throws IOException {
+        for (final Map.Entry<String, Family> entry : FAMILIES.entrySet()) {
+            final String name = entry.getKey();
+            final Family family = entry.getValue();
+            if (family.metrics.isEmpty())
+                continue;
+            writer.write("# HELP " + name + " " + family.help + "\n");
+            writer.write("# TYPE " + name + " " + family.type.name().toLowerCase() + "\n");
+            for (final Map.Entry<String, Object> metric : family.metrics.entrySet()) {
+                final String labels = metric.getKey();
+                switch (family.type) {
+                    case COUNTER:
+                        writer.write(name + braces(labels) + " " + ((LongAdder) metric.getValue()).sum() + "\n");
+                        break;
+                    case GAUGE:
+                        writer.write(name + braces(labels) + " " + ((LongSupplier) metric.getValue()).getAsLong() + "\n");
+                        break;
+                    case SUMMARY:
+                        final LatencyHistogram histogram = (LatencyHistogram) metric.getValue();
+                        for (final double quantile : QUANTILES)
+                            writer.write(name + braces(labels.isEmpty() ? "quantile=\"" + quantile + "\"" : labels + ",quantile=\"" + quantile + "\"") + " " + histogram.getPercentile(quantile) / 1e9 + "\n");
+                        writer.write(name + "_sum" + braces(labels) + " " + histogram.getSum() / 1e9 + "\n");
+                        writer.write(name + "_count" + braces(labels) + " " + histogram.getCount() + "\n");
+                        break;
+                }
+            }
+        }
+    }
+
+    private static Family family(final String name, final String help, final Type type) {
+        final Family family = FAMILIES.computeIfAbsent(name, k -> new Family(help, type));
+        if (family.type != type)
+            throw new IllegalArgumentException("Metric " + name + " is already registered as " + family.type.name().toLowerCase());
+        return family;
+    }
+
+    private static String labels(final String... labels) {
+        if (labels.length % 2 != 0)
+            throw new IllegalArgumentException("Labels should be name and value pairs");
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i != 0)
+                builder.append(',');
+            builder.append(labels[i]).append("=\"").append(labels[i + 1].replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n")).append('"');
+        }
+        return builder.toString();
+    }
+
+    private static String braces(final String labels) {
+        return labels.isEmpty() ? "" : "{" + labels + "}";
+    }
+
+    private enum Type {
+        COUNTER, GAUGE, SUMMARY
+    }
+
+    private static class Family {
+
+        private final String help;
+        private final Type type;
+        private final Map<String, Object> metrics = Maps.newConcurrentMap();
+
+        private Family(final String help, final Type type) {
+            this.help = help;
+            this.type = type;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package top.focess.qq.core.metrics;
+
+import com.sun.net.httpserver.HttpServer;
+import org.jetbrains.annotations.NotNull;
+import top.focess.qq.FocessQQ;
+import top.focess.qq.api.scheduler.Schedulers;
+import top.focess.scheduler.Task;
+import top.focess.util.option.Option;
+import top.focess.util.option.Options;
+import top.focess.util.option.type.IntegerOptionType;
+import top.focess.util.option.type.OptionType;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+
+/**
+ * Export the {@link Metrics} by the startup options --metrics &lt;port&gt; and --metricsFile &lt;file&gt;.
+ * The port serves the metrics at /metrics, and the file is rewritten every 15 seconds.
+ * The port is bound to the loopback address unless another address is given by --metricsBind &lt;address&gt;.
+ */
+public final class MetricsExporter {
+
+    private static final Duration FILE_PERIOD = Duration.ofSeconds(15);
+
+    private static HttpServer server;
+
+    private static Task fileTask;
+
+    private MetricsExporter() {
+    }
+
+    /**
+     * Start the exporters requested by the startup options
+     *
+     * @param options the startup options
+     */
+    public static void start(@NotNull final Options options) {
+        Option option = options.get("metrics");
+        if (option != null) {
+            final int port = option.get(IntegerOptionType.INTEGER_OPTION_TYPE);
+            try {
+                final Option bindOption = options.get("metricsBind");
+                final InetAddress address = bindOption == null ? InetAddress.getLoopbackAddress() : InetAddress.getByName(bindOption.get(OptionType.DEFAULT_OPTION_TYPE));
+                server = HttpServer.create(new InetSocketAddress(address, port), 0);
+                server.createContext("/metrics", exchange -> {
+                    final byte[] bytes = export().getBytes(StandardCharsets.UTF_8);
+                    exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+                    exchange.sendResponseHeaders(200, bytes.length);
+                    try (OutputStream outputStream = exchange.getResponseBody()) {
+                        outputStream.write(bytes);
+                    }
+                });
+                server.start();
+                FocessQQ.getLogger().infoLang("create-metrics-server", address.getHostAddress(), port);
+            } catch (final IOException e) {
+                server = null;
+                FocessQQ.getLogger().thrLang("exception-create-metrics-server", e);
+            }
+        }
+        option = options.get("metricsFile");
+        if (option != null) {
+            final File file = new File(option.get(OptionType.DEFAULT_OPTION_TYPE));
+            fileTask = Schedulers.newFocessScheduler(FocessQQ.getMainPlugin(), "MetricsExporter").runTimer(() -> write(file), Duration.ZERO, FILE_PERIOD, "export-metrics");
+        }
+    }
+
+    /**
+     * Stop the exporters
+     */
+    public static void stop() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+        if (fileTask != null) {
+            fileTask.cancel();
+            fileTask = null;
+        }
+    }
+
+    @NotNull
+    private static String export() throws IOException {
+        final StringWriter writer = new StringWriter();
+        Metrics.export(writer);
+        return writer.toString();
+    }
+
+    private static void write(final File file) {
+        final File temp = new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(temp.toPath(), StandardCharsets.UTF_8)) {
+                Metrics.export(writer);
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (final IOException e) {
+            FocessQQ.getLogger().thrLang("exception-export-metrics", e);
+        }
+    }
+}
@@ -1,15 +1,15 @@
 package top.focess.qq.core.permission;
 
-import com.google.common.collect.Lists;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import top.focess.qq.api.plugin.Plugin;
+import top.focess.qq.core.jfr.FlightEvents;
 import top.focess.qq.core.plugin.PluginCoreClassLoader;
 import top.focess.qq.core.util.MethodCaller;
 
-import java.lang.annotation.Annotation;
-import java.util.Arrays;
-import java.util.List;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
 
 public enum Permission {
     REGISTER_LISTENER("REGISTER_LISTENER",0),
@@ -81,20 +81,49 @@ public enum Permission {
     INIT_PLUGIN("INIT_PLUGIN",4),
     ALL("ALL",5,REGISTER,BOT,MESSAGE,EVENT_SUBMIT,DISABLE_PLUGIN,ENABLE_PLUGIN,EXIT,LOAD_SOFT_DEPENDENCIES,NETWORK,SCHEDULER,GET_BOT_MANAGER,REMOVE, ACCESS_MAIN_FILE,INIT_PLUGIN);
 
-    private final List<Permission> permissions;
+    /**
+     * The permissions declared by the PermissionEnv of each class, resolved once per class
+     */
+    private static final ClassValue<Set<Permission>> PERMISSION_ENV = new ClassValue<Set<Permission>>() {
+        @Override
+        protected Set<Permission> computeValue(final Class<?> type) {
+            final Set<Permission> permissions = EnumSet.noneOf(Permission.class);
+            final PermissionEnv permissionEnv = type.getAnnotation(PermissionEnv.class);
+            if (permissionEnv != null)
+                Collections.addAll(permissions, permissionEnv.values());
+            return Collections.unmodifiableSet(permissions);
+        }
+    };
+
+    static {
+        if (values().length > Long.SIZE)
+            throw new IllegalStateException("There are more than 64 permissions, they cannot be represented by a long mask.");
+    }
+
+    /**
+     * The mask of all the leaf permissions this permission contains
+     */
+    private final long mask;
+    /**
+     * The bit of this permission if it is a leaf permission, 0 otherwise
+     */
+    private final long bit;
     private final String name;
     private final int priority;
 
     Permission(String name, int priority, final @NotNull Permission permission, final Permission @NotNull ... permissions) {
-        this.permissions = Lists.newArrayList(permission.permissions);
+        long mask = permission.mask;
         for (Permission per : permissions)
-            this.permissions.addAll(per.permissions);
+            mask |= per.mask;
+        this.mask = mask;
+        this.bit = 0;
         this.name = name;
         this.priority = priority;
     }
 
     Permission(String name, int priority) {
-        this.permissions = Lists.newArrayList(this);
+        this.mask = 1L << this.ordinal();
+        this.bit = this.mask;
         this.name = name;
         this.priority = priority;
     }
@@ -110,8 +139,10 @@ public enum Permission {
 
     public static void checkPermission(@NotNull Plugin plugin, Permission permission) {
         if (!plugin.getPluginDescription().hasPermission(permission)) {
+            PermissionAudit.record(plugin, permission, false);
             throw new PermissionException(plugin, permission);
         }
+        PermissionAudit.record(plugin, permission, true);
     }
 
     public String getName() {
@@ -123,23 +154,51 @@ public enum Permission {
     }
 
     public static void checkPermission(final Permission permission) {
-        Class<?> permissionClass = MethodCaller.getCallerClass();
-        if (permissionClass == null)
-            throw new PermissionException(permission);
-        Annotation annotation = Arrays.stream(permissionClass.getAnnotations()).filter(i -> i.annotationType() == PermissionEnv.class).findAny().orElse(null);
-        if (annotation == null)
-            throw new PermissionException(permission);
-        PermissionEnv permissionEnv = (PermissionEnv) annotation;
-        if (Arrays.stream(permissionEnv.values()).allMatch(i -> i != permission))
-            throw new PermissionException(permission);
-        for (Class<?> clazz : MethodCaller.getAllCallerClass()) {
-            Plugin plugin = PluginCoreClassLoader.getPluginByClass(clazz);
-            if (plugin != null)
-                checkPermission(plugin, permission);
+        // no helper method here, because the caller class is found by the depth of the stack
+        final FlightEvents.PermissionCheck jfr = FlightEvents.AVAILABLE ? new FlightEvents.PermissionCheck() : null;
+        if (jfr != null)
+            jfr.begin();
+        try {
+            Class<?> permissionClass = MethodCaller.getCallerClass();
+            if (permissionClass == null)
+                throw new PermissionException(permission);
+            if (!PERMISSION_ENV.get(permissionClass).contains(permission))
+                throw new PermissionException(permission);
+            // the caller classes are distinct, so each class is resolved to its plugin only once
+            for (Class<?> clazz : MethodCaller.getAllCallerClass()) {
+                Plugin plugin = PluginCoreClassLoader.getPluginByClass(clazz);
+                if (plugin != null)
+                    checkPermission(plugin, permission);
+            }
+            if (jfr != null)
+                jfr.granted = true;
+        } finally {
+            if (jfr != null) {
+                jfr.permission = permission.getName();
+                jfr.commit();
+            }
         }
     }
 
     public boolean hasPermission(Permission permission) {
-        return this.permissions.contains(permission);
+        return (this.mask & permission.bit) != 0;
+    }
+
+    /**
+     * Get the mask of all the leaf permissions this permission contains
+     *
+     * @return the mask of this permission
+     */
+    public long getMask() {
+        return this.mask;
+    }
+
+    /**
+     * Get the bit of this permission
+     *
+     * @return the bit of this permission if it is a leaf permission, 0 otherwise
+     */
+    public long getBit() {
+        return this.bit;
     }
 }
@@ -0,0 +1,213 @@
+package top.focess.qq.core.permission;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import top.focess.qq.api.plugin.Plugin;
+import top.focess.qq.core.util.MethodCaller;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Count the permission decisions of each plugin, and sample the stacks of the denials.
+ */
+public class PermissionAudit {
+
+    /**
+     * Capture one of every SAMPLE_RATE denials of the same plugin and permission, the first denial is always captured
+     */
+    private static final int SAMPLE_RATE = 100;
+
+    private static final int MAX_SAMPLES = 32;
+
+    private static final Map<String, Counters> COUNTERS = Maps.newConcurrentMap();
+
+    private static final Deque<DenialSample> SAMPLES = new ArrayDeque<>();
+
+    private PermissionAudit() {
+    }
+
+    /**
+     * Record a permission decision
+     *
+     * @param plugin     the plugin
+     * @param permission the permission
+     * @param granted    true if the permission is granted, false otherwise
+     */
+    static void record(@NotNull final Plugin plugin, @NotNull final Permission permission, final boolean granted) {
+        final Counters counters = COUNTERS.computeIfAbsent(plugin.getName(), k -> new Counters());
+        if (granted)
+            counters.granted[permission.ordinal()].increment();
+        else {
+            final LongAdder denied = counters.denied[permission.ordinal()];
+            denied.increment();
+            if (denied.sum() % SAMPLE_RATE == 1)
+                synchronized (SAMPLES) {
+                    if (SAMPLES.size() == MAX_SAMPLES)
+                        SAMPLES.removeFirst();
+                    SAMPLES.addLast(new DenialSample(plugin.getName(), permission, System.currentTimeMillis(), new Throwable().getStackTrace(), MethodCaller.getPluginFrame()));
+                }
+        }
+    }
+
+    /**
+     * Get the permission decisions which happened at least once
+     *
+     * @return the permission decisions grouped by plugin name and permission
+     */
+    @NotNull
+    public static List<Entry> getEntries() {
+        final List<Entry> entries = Lists.newArrayList();
+        COUNTERS.forEach((plugin, counters) -> {
+            for (final Permission permission : Permission.values()) {
+                final long granted = counters.granted[permission.ordinal()].sum();
+                final long denied = counters.denied[permission.ordinal()].sum();
+                if (granted != 0 || denied != 0)
+                    entries.add(new Entry(plugin, permission, granted, denied));
+            }
+        });
+        return entries;
+    }
+
+    /**
+     * Get the latest sampled denials
+     *
+     * @return the latest sampled denials, the oldest first
+     */
+    @NotNull
+    public static List<DenialSample> getSamples() {
+        synchronized (SAMPLES) {
+            return Lists.newArrayList(SAMPLES);
+        }
+    }
+
+    /**
+     * Export the counters and the sampled denials as CSV
+     *
+     * @param file the file to export to
+     * @throws IOException if an I/O error occurs
+     */
+    public static void export(@NotNull final File file) throws IOException {
+        try (final PrintWriter writer = new PrintWriter(file, StandardCharsets.UTF_8)) {
+            writer.println("plugin,permission,granted,denied");
+            for (final Entry entry : getEntries())
+                writer.println(entry.getPlugin() + "," + entry.getPermission().getName() + "," + entry.getGranted() + "," + entry.getDenied());
+            writer.println();
+            writer.println("time,plugin,permission,frame,stack");
+            for (final DenialSample sample : getSamples()) {
+                final StringBuilder stack = new StringBuilder();
+                for (final StackTraceElement element : sample.getStackTrace())
+                    stack.append(element).append(" <- ");
+                writer.println(sample.getTime() + "," + sample.getPlugin() + "," + sample.getPermission().getName() + ",\"" + sample.getPluginFrame() + "\",\"" + stack + "\"");
+            }
+        }
+    }
+
+    /**
+     * Clear all the counters and the sampled denials
+     */
+    public static void reset() {
+        COUNTERS.clear();
+        synchronized (SAMPLES) {
+            SAMPLES.clear();
+        }
+    }
+
+    private static class Counters {
+
+        private final LongAdder[] granted = newAdders();
+
+        private final LongAdder[] denied = newAdders();
+
+        private static LongAdder[] newAdders() {
+            final LongAdder[] adders = new LongAdder[Permission.values().length];
+            for (int i = 0; i < adders.length; i++)
+                adders[i] = new LongAdder();
+            return adders;
+        }
+    }
+
+    public static class Entry {
+
+        private final String plugin;
+        private final Permission permission;
+        private final long granted;
+        private final long denied;
+
+        private Entry(final String plugin, final Permission permission, final long granted, final long denied) {
+            this.plugin = plugin;
+            this.permission = permission;
+            this.granted = granted;
+            this.denied = denied;
+        }
+
+        public String getPlugin() {
+            return this.plugin;
+        }
+
+        public Permission getPermission() {
+            return this.permission;
+        }
+
+        public long getGranted() {
+            return this.granted;
+        }
+
+        public long getDenied() {
+            return this.denied;
+        }
+    }
+
+    public static class DenialSample {
+
+        private final String plugin;
+        private final Permission permission;
+        private final long time;
+        private final StackTraceElement[] stackTrace;
+        @Nullable
+        private final StackTraceElement pluginFrame;
+
+        private DenialSample(final String plugin, final Permission permission, final long time, final StackTraceElement[] stackTrace, @Nullable final StackTraceElement pluginFrame) {
+            this.plugin = plugin;
+            this.permission = permission;
+            this.time = time;
+            this.stackTrace = stackTrace;
+            this.pluginFrame = pluginFrame;
+        }
+
+        public String getPlugin() {
+            return this.plugin;
+        }
+
+        public Permission getPermission() {
+            return this.permission;
+        }
+
+        public long getTime() {
+            return this.time;
+        }
+
+        public StackTraceElement[] getStackTrace() {
+            return this.stackTrace;
+        }
+
+        /**
+         * Get the first frame of the plugin code in the sampled stack
+         *
+         * @return the first plugin frame, or null if the permission is not checked from the plugin code
+         */
+        @Nullable
+        public StackTraceElement getPluginFrame() {
+            return this.pluginFrame;
+        }
+    }
+}
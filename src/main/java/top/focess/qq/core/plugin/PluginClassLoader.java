@@ -20,6 +20,7 @@ import top.focess.qq.api.event.plugin.PluginUnloadEvent;
 import top.focess.qq.api.plugin.*;
 import top.focess.qq.api.scheduler.Schedulers;
 import top.focess.qq.core.bot.BotManagerFactory;
+import top.focess.qq.core.jfr.FlightEvents;
 import top.focess.qq.core.permission.Permission;
 import top.focess.qq.core.permission.PermissionEnv;
 import top.focess.scheduler.Callback;
@@ -28,15 +29,18 @@ import top.focess.scheduler.Task;
 import top.focess.util.Pair;
 import top.focess.util.yaml.YamlConfiguration;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.CancellationException;
@@ -45,6 +49,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
+import java.util.stream.Collectors;
 
 @PermissionEnv(values = {Permission.LOAD_SOFT_DEPENDENCIES, Permission.DISABLE_PLUGIN, Permission.ENABLE_PLUGIN})
 public class PluginClassLoader extends URLClassLoader {
@@ -227,6 +232,10 @@ public class PluginClassLoader extends URLClassLoader {
     private final JarFile jarFile;
     private final File file;
     private final Set<Class<?>> loadedClasses = Sets.newHashSet();
+    /**
+     * Whether this loader is still in PluginCoreClassLoader.LOADERS, so its classes belong to its plugin
+     */
+    private volatile boolean active;
     private PluginDescription pluginDescription;
     private Plugin plugin;
 
@@ -240,6 +249,7 @@ public class PluginClassLoader extends URLClassLoader {
         this.file = file;
         this.jarFile = new JarFile(file);
         PluginCoreClassLoader.LOADERS.add(this);
+        this.active = true;
     }
 
     public static void enablePlugin(@NotNull final Plugin plugin) {
@@ -304,6 +314,9 @@ public class PluginClassLoader extends URLClassLoader {
 
     @Nullable
     public static File disablePlugin0(@NotNull final Plugin plugin) {
+        final FlightEvents.PluginUnload jfr = FlightEvents.AVAILABLE ? new FlightEvents.PluginUnload() : null;
+        if (jfr != null)
+            jfr.begin();
         FocessQQ.getLogger().debugLang("start-disable-plugin", plugin.getName());
         // try-catch because it should take over the process
         try {
@@ -345,7 +358,7 @@ public class PluginClassLoader extends URLClassLoader {
         if (plugin.getClass().getClassLoader() instanceof PluginClassLoader)
             try {
                 final PluginClassLoader loader = (PluginClassLoader) plugin.getClass().getClassLoader();
-                PluginCoreClassLoader.LOADERS.remove(loader);
+                loader.removeLoader();
                 if (loader != null) {
                     ret = loader.getFile();
                     loader.close();
@@ -363,6 +376,10 @@ public class PluginClassLoader extends URLClassLoader {
                 FocessQQ.getLogger().thrLang("exception-submit-plugin-unload-event", e);
             }
         }
+        if (jfr != null) {
+            jfr.plugin = plugin.getName();
+            jfr.commit();
+        }
         return ret;
     }
 
@@ -399,29 +416,66 @@ public class PluginClassLoader extends URLClassLoader {
         return this.loadedClasses;
     }
 
+    boolean isActive() {
+        return this.active;
+    }
+
+    private void removeLoader() {
+        this.active = false;
+        PluginCoreClassLoader.LOADERS.remove(this);
+    }
+
     @Override
     public void close() throws IOException {
+        // a closed loader cannot find any class, so it is removed from the PluginCoreClassLoader
+        this.removeLoader();
         super.close();
         this.loadedClasses.clear();
         this.jarFile.close();
     }
 
     public boolean load() {
+        final FlightEvents.PluginLoad jfr = FlightEvents.AVAILABLE ? new FlightEvents.PluginLoad() : null;
+        if (jfr != null)
+            jfr.begin();
+        final boolean loaded = this.load0();
+        if (jfr != null) {
+            jfr.file = this.file.getName();
+            jfr.plugin = this.plugin == null ? null : this.plugin.getName();
+            jfr.loaded = loaded;
+            jfr.commit();
+        }
+        return loaded;
+    }
+
+    private boolean load0() {
         //make sure only one plugin is loaded at the same time
         synchronized (LOCK) {
             FocessQQ.getLogger().debugLang("start-load-plugin", this.file.getName());
             try {
                 final Enumeration<JarEntry> entries = this.jarFile.entries();
                 List<Pair<String,InputStream>> inputStreams = Lists.newArrayList();
+                // the classes need to be analysed, null if the plugin is not compiled with the PluginRegistryProcessor
+                Set<String> registry = null;
+                // the classes seen by the PluginRegistryProcessor, the others may be annotated in any way
+                Set<String> compiled = Collections.emptySet();
                 while (entries.hasMoreElements()) {
                     final JarEntry jarEntry = entries.nextElement();
                     final String name = jarEntry.getName();
+                    if (name.equals(PluginRegistryProcessor.REGISTRY)) {
+                        registry = readClassNames(this.jarFile.getInputStream(jarEntry));
+                        continue;
+                    }
+                    if (name.equals(PluginRegistryProcessor.CLASSES)) {
+                        compiled = readClassNames(this.jarFile.getInputStream(jarEntry));
+                        continue;
+                    }
                     PLUGIN_YML_HANDLER.handle(name, this.jarFile.getInputStream(jarEntry), this);
                     inputStreams.add(Pair.of(name, this.jarFile.getInputStream(jarEntry)));
                 }
                 if (this.pluginDescription == null) {
                     FocessQQ.getLogger().debugLang("plugin-description-not-found");
-                    PluginCoreClassLoader.LOADERS.remove(this);
+                    this.removeLoader();
                     return false;
                 }
                 for (final Pair<String,InputStream> inputStream : inputStreams)
@@ -431,18 +485,24 @@ public class PluginClassLoader extends URLClassLoader {
                 final Annotation annotation = pluginClass.getAnnotation(PluginType.class);
                 if (annotation != null) {
                     if (!PLUGIN_TYPE_HANDLER.handle(pluginClass, annotation, this)) {
-                        PluginCoreClassLoader.LOADERS.remove(this);
+                        this.removeLoader();
                         return false;
                     }
                 } else {
-                    PluginCoreClassLoader.LOADERS.remove(this);
+                    this.removeLoader();
                     return false;
                 }
                 enablePlugin(this.plugin);
                 FocessQQ.getLogger().debugLang("load-plugin-class");
 
+                // the registry is only a hint, the listed classes which are not in the plugin mean that the registry is out of date
+                if (registry != null && !this.loadedClasses.stream().map(Class::getName).collect(Collectors.toSet()).containsAll(registry)) {
+                    FocessQQ.getLogger().debugLang("plugin-registry-out-of-date", this.file.getName());
+                    registry = null;
+                }
                 for (final Class<?> c : this.loadedClasses)
-                    this.analyseClass(c);
+                    if (registry == null || registry.contains(c.getName()) || !compiled.contains(c.getName()))
+                        this.analyseClass(c);
                 FocessQQ.getLogger().debugLang("load-class");
 
                 FocessQQ.getLogger().debugLang("load-depend-plugin");
@@ -496,7 +556,7 @@ public class PluginClassLoader extends URLClassLoader {
                 else if (!(e instanceof IllegalStateException))
                     // for internal load error
                     FocessQQ.getLogger().thrLang("exception-load-plugin-unexpected-exception", e);
-                PluginCoreClassLoader.LOADERS.remove(this);
+                this.removeLoader();
                 GC_SCHEDULER.run(System::gc, Duration.ofSeconds(1),"load-failed");
                 return false;
             }
@@ -505,6 +565,18 @@ public class PluginClassLoader extends URLClassLoader {
         }
     }
 
+    @NotNull
+    private static Set<String> readClassNames(@NotNull final InputStream inputStream) throws IOException {
+        final Set<String> registry = Sets.newHashSet();
+        try (final BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null)
+                if (!line.trim().isEmpty())
+                    registry.add(line.trim());
+        }
+        return registry;
+    }
+
     private void analyseClass(@NotNull final Class<?> c) {
         for (final Class<? extends Annotation> annotation : HANDLERS.keySet()) {
             final Annotation a;
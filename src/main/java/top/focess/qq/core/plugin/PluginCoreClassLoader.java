@@ -21,14 +21,23 @@ public class PluginCoreClassLoader extends ClassLoader {
         return DEFAULT_CLASS_LOADER.loadClass(name, false);
     }
 
+    /**
+     * Indicate whether there is any plugin loaded by PluginClassLoader
+     *
+     * @return true if there is any PluginClassLoader, false otherwise
+     */
+    public static boolean hasPluginClassLoader() {
+        return !LOADERS.isEmpty();
+    }
+
     @Nullable
     public static Plugin getPluginByClass(@Nullable final Class<?> clazz) {
         if (clazz == null)
             return null;
-        if (clazz.getClassLoader() instanceof PluginClassLoader)
-            for (final PluginClassLoader pluginClassLoader : LOADERS)
-                if (pluginClassLoader.getLoadedClasses().contains(clazz))
-                    return pluginClassLoader.getPlugin();
+        // a class belongs to the plugin whose loader defines it, as long as the loader is not removed
+        final ClassLoader classLoader = clazz.getClassLoader();
+        if (classLoader instanceof PluginClassLoader && ((PluginClassLoader) classLoader).isActive())
+            return ((PluginClassLoader) classLoader).getPlugin();
         return null;
     }
 
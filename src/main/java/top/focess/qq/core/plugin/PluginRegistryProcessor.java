@@ -0,0 +1,161 @@
+package top.focess.qq.core.plugin;
+
+import com.google.common.collect.Sets;
+import top.focess.qq.api.command.CommandType;
+import top.focess.qq.api.command.SpecialArgumentType;
+import top.focess.qq.api.command.converter.DataConverterType;
+import top.focess.qq.api.event.ListenerType;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.Elements;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.annotation.Annotation;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Generate the registry of the classes which need to be analysed when the plugin is loaded. It runs when the plugin is compiled with focess-qq in the classpath.
+ * The registry contains one binary class name per line. The classes list contains all the classes seen by this processor in the same format,
+ * so the PluginClassLoader skips the classes in the classes list but not in the registry, and still analyses the classes compiled without this processor.
+ * An incremental build only processes the changed sources, so the classes in the existing registry are kept as long as they are still annotated,
+ * and the classes in the existing classes list are kept as long as they still exist.
+ */
+public class PluginRegistryProcessor extends AbstractProcessor {
+
+    /**
+     * The registry resource path in the plugin jar
+     */
+    public static final String REGISTRY = "META-INF/focess-qq/registry";
+
+    /**
+     * The classes list resource path in the plugin jar
+     */
+    public static final String CLASSES = "META-INF/focess-qq/classes";
+
+    private static final List<Class<? extends Annotation>> TYPE_ANNOTATIONS = List.of(CommandType.class, ListenerType.class);
+
+    private static final List<Class<? extends Annotation>> FIELD_ANNOTATIONS = List.of(DataConverterType.class, SpecialArgumentType.class);
+
+    private final Set<String> classes = Sets.newTreeSet();
+
+    private final Set<String> compiled = Sets.newTreeSet();
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Sets.union(TYPE_ANNOTATIONS.stream().map(Class::getCanonicalName).collect(Collectors.toSet()), FIELD_ANNOTATIONS.stream().map(Class::getCanonicalName).collect(Collectors.toSet()));
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv) {
+        for (final Element element : roundEnv.getRootElements())
+            if (element instanceof TypeElement)
+                this.addCompiled((TypeElement) element);
+        for (final Class<? extends Annotation> annotation : TYPE_ANNOTATIONS)
+            for (final Element element : roundEnv.getElementsAnnotatedWith(annotation))
+                if (element instanceof TypeElement)
+                    this.classes.add(this.processingEnv.getElementUtils().getBinaryName((TypeElement) element).toString());
+        for (final Class<? extends Annotation> annotation : FIELD_ANNOTATIONS)
+            for (final Element element : roundEnv.getElementsAnnotatedWith(annotation))
+                if (element.getEnclosingElement() instanceof TypeElement)
+                    this.classes.add(this.processingEnv.getElementUtils().getBinaryName((TypeElement) element.getEnclosingElement()).toString());
+        if (roundEnv.processingOver()) {
+            this.mergeRegistry();
+            this.mergeCompiled();
+            if (this.classes.isEmpty())
+                return false;
+            try {
+                this.write(REGISTRY, this.classes);
+                this.write(CLASSES, this.compiled);
+            } catch (final IOException e) {
+                this.processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, "Cannot write the focess-qq registry: " + e.getMessage());
+            }
+        }
+        return false;
+    }
+
+    private void addCompiled(final TypeElement element) {
+        this.compiled.add(this.processingEnv.getElementUtils().getBinaryName(element).toString());
+        for (final Element enclosed : element.getEnclosedElements())
+            if (enclosed instanceof TypeElement)
+                this.addCompiled((TypeElement) enclosed);
+    }
+
+    private void write(final String name, final Set<String> classes) throws IOException {
+        final FileObject file = this.processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", name);
+        try (final Writer writer = file.openWriter()) {
+            for (final String c : classes)
+                writer.write(c + "\n");
+        }
+    }
+
+    /**
+     * Add the classes in the classes list of the last build which are not compiled in this build but still exist
+     */
+    private void mergeCompiled() {
+        final Elements elements = this.processingEnv.getElementUtils();
+        try {
+            final FileObject list = this.processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", CLASSES);
+            try (final BufferedReader reader = new BufferedReader(list.openReader(true))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    final String c = line.trim();
+                    if (!c.isEmpty() && !this.compiled.contains(c) && elements.getTypeElement(c.replace('$', '.')) != null)
+                        this.compiled.add(c);
+                }
+            }
+        } catch (final IOException | IllegalArgumentException ignored) {
+            // there is no classes list in the last build
+        }
+    }
+
+    /**
+     * Add the classes in the registry of the last build which are not compiled in this build but still need to be analysed
+     */
+    private void mergeRegistry() {
+        final Elements elements = this.processingEnv.getElementUtils();
+        try {
+            final FileObject registry = this.processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", REGISTRY);
+            try (final BufferedReader reader = new BufferedReader(registry.openReader(true))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    final String c = line.trim();
+                    if (c.isEmpty() || this.classes.contains(c))
+                        continue;
+                    final TypeElement element = elements.getTypeElement(c.replace('$', '.'));
+                    if (element != null && isAnnotated(element))
+                        this.classes.add(c);
+                }
+            }
+        } catch (final IOException | IllegalArgumentException ignored) {
+            // there is no registry in the last build
+        }
+    }
+
+    private static boolean isAnnotated(final TypeElement element) {
+        for (final Class<? extends Annotation> annotation : TYPE_ANNOTATIONS)
+            if (element.getAnnotation(annotation) != null)
+                return true;
+        for (final Element enclosed : element.getEnclosedElements())
+            if (enclosed.getKind() == ElementKind.FIELD)
+                for (final Class<? extends Annotation> annotation : FIELD_ANNOTATIONS)
+                    if (enclosed.getAnnotation(annotation) != null)
+                        return true;
+        return false;
+    }
+}
@@ -2,12 +2,16 @@ package top.focess.qq.core.scheduler;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.UnmodifiableView;
 import top.focess.qq.FocessQQ;
 import top.focess.qq.api.plugin.Plugin;
+import top.focess.qq.core.metrics.Metrics;
 import top.focess.qq.core.permission.Permission;
 import top.focess.qq.core.permission.PermissionEnv;
+import top.focess.qq.core.util.LatencyHistogram;
+import top.focess.qq.core.util.Trace;
 import top.focess.scheduler.Callback;
 import top.focess.scheduler.Scheduler;
 import top.focess.scheduler.Task;
@@ -17,21 +21,36 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
+/**
+ * The scheduler belonging to a plugin. The tasks run in the {@link Trace} of the thread which schedules them,
+ * and the queue depth, the running tasks and the task latency are registered to {@link Metrics}.
+ */
 @PermissionEnv(values = Permission.REMOVE_SCHEDULER)
 public class AScheduler implements Scheduler {
 
-    private static final Map<Plugin, List<Scheduler>> PLUGIN_SCHEDULER_MAP = Maps.newConcurrentMap();
+    private static final Map<Plugin, List<AScheduler>> PLUGIN_SCHEDULER_MAP = Maps.newConcurrentMap();
+
+    private static final AtomicInteger INSTANCES = new AtomicInteger();
 
     private final Plugin plugin;
     private final Scheduler scheduler;
+    private final AtomicInteger active = new AtomicInteger();
+    private final LatencyHistogram latency;
+    // the schedulers of a plugin may have the same name, so the instance label keeps their metrics apart
+    private final String[] labels;
 
     public AScheduler(final Plugin plugin, final Scheduler scheduler) {
         this.plugin = plugin;
         this.scheduler = scheduler;
+        this.labels = new String[]{"scheduler", scheduler.getName(), "plugin", plugin.getName(), "instance", String.valueOf(INSTANCES.incrementAndGet())};
         this.scheduler.setUncaughtExceptionHandler((t, e) -> FocessQQ.getLogger().thrLang("exception-scheduler-uncaught", e, this.getName()));
+        Metrics.gauge("focess_scheduler_queue_depth", "The count of the tasks waiting in the scheduler", () -> this.scheduler.getRemainingTasks().size(), this.labels());
+        Metrics.gauge("focess_scheduler_active_tasks", "The count of the tasks running in the scheduler threads", this.active::get, this.labels());
+        this.latency = Metrics.histogram("focess_scheduler_task_seconds", "The run time of the tasks in the scheduler", this.labels());
         PLUGIN_SCHEDULER_MAP.compute(plugin, (k, v) -> {
             if (v == null)
                 v = Lists.newCopyOnWriteArrayList();
@@ -40,43 +59,101 @@ public class AScheduler implements Scheduler {
         });
     }
 
+    /**
+     * Get all the schedulers which are not closed
+     *
+     * @return all the schedulers
+     */
+    @NotNull
+    public static List<AScheduler> getSchedulers() {
+        final List<AScheduler> schedulers = Lists.newArrayList();
+        PLUGIN_SCHEDULER_MAP.values().forEach(schedulers::addAll);
+        return schedulers;
+    }
+
     public Plugin getPlugin() {
         return this.plugin;
     }
 
+    public int getActiveTasks() {
+        return this.active.get();
+    }
+
+    /**
+     * Get the run time of the tasks
+     *
+     * @return the histogram of the run time in nanoseconds
+     */
+    @NotNull
+    public LatencyHistogram getLatency() {
+        return this.latency;
+    }
+
+    private String[] labels() {
+        return this.labels;
+    }
+
+    private Runnable wrap(final Runnable runnable) {
+        final Runnable traced = Trace.wrap(runnable);
+        return () -> {
+            this.active.incrementAndGet();
+            final long start = System.nanoTime();
+            try {
+                traced.run();
+            } finally {
+                this.latency.record(System.nanoTime() - start);
+                this.active.decrementAndGet();
+            }
+        };
+    }
+
+    private <V> Callable<V> wrap(final Callable<V> callable) {
+        final Callable<V> traced = Trace.wrap(callable);
+        return () -> {
+            this.active.incrementAndGet();
+            final long start = System.nanoTime();
+            try {
+                return traced.call();
+            } finally {
+                this.latency.record(System.nanoTime() - start);
+                this.active.decrementAndGet();
+            }
+        };
+    }
+
     @Override
     public Task run(final Runnable runnable, final Duration delay) {
-        return this.scheduler.run(runnable, delay);
+        return this.scheduler.run(this.wrap(runnable), delay);
     }
 
     @Override
     public Task run(final Runnable runnable, final Duration delay, final String name) {
-        return this.scheduler.run(runnable, delay, name);
+        return this.scheduler.run(this.wrap(runnable), delay, name);
     }
 
     @Override
     public Task runTimer(final Runnable runnable, final Duration delay, final Duration period) {
-        return this.scheduler.runTimer(runnable, delay, period);
+        return this.scheduler.runTimer(this.wrap(runnable), delay, period);
     }
 
     @Override
     public Task runTimer(final Runnable runnable, final Duration delay, final Duration period, final String name) {
-        return this.scheduler.runTimer(runnable, delay, period, name);
+        return this.scheduler.runTimer(this.wrap(runnable), delay, period, name);
     }
 
     @Override
     public Task runTimer(Runnable runnable, Duration duration, Duration duration1, String s, Consumer<ExecutionException> consumer) {
-        return this.scheduler.runTimer(runnable, duration, duration1, s, consumer);
+        return this.scheduler.runTimer(this.wrap(runnable), duration, duration1, s, consumer);
     }
 
     @Override
     public <V> Callback<V> submit(final Callable<V> callable, final Duration delay) {
-        return this.scheduler.submit(callable, delay);
+        return this.scheduler.submit(this.wrap(callable), delay);
     }
 
     @Override
     public <V> Callback<V> submit(final Callable<V> callable, final Duration duration, final String name) {
-        return this.scheduler.submit(callable, duration, name);
+        return this.scheduler.submit(this.wrap(callable), duration, name);
     }
 
     @Override
@@ -98,6 +175,9 @@ public class AScheduler implements Scheduler {
                 v.remove(this);
             return v;
         });
+        Metrics.remove("focess_scheduler_queue_depth", this.labels());
+        Metrics.remove("focess_scheduler_active_tasks", this.labels());
+        Metrics.remove("focess_scheduler_task_seconds", this.labels());
     }
 
     @Override
@@ -128,12 +208,12 @@ public class AScheduler implements Scheduler {
 
     @Override
     public Task run(final Runnable runnable, final Duration duration, final String s, final Consumer<ExecutionException> consumer) {
-        return this.scheduler.run(runnable, duration, s, consumer);
+        return this.scheduler.run(this.wrap(runnable), duration, s, consumer);
     }
 
     @Override
     public <V> Callback<V> submit(final Callable<V> callable, final Duration duration, final String s, final Function<ExecutionException, V> function) {
-        return this.scheduler.submit(callable, duration, s, function);
+        return this.scheduler.submit(this.wrap(callable), duration, s, function);
     }
 
     /**
@@ -143,7 +223,7 @@ public class AScheduler implements Scheduler {
      */
     public static void close(final Plugin plugin) {
         Permission.checkPermission(Permission.REMOVE_SCHEDULER);
-        for (final Scheduler scheduler : PLUGIN_SCHEDULER_MAP.getOrDefault(plugin, Lists.newCopyOnWriteArrayList()))
+        for (final AScheduler scheduler : PLUGIN_SCHEDULER_MAP.getOrDefault(plugin, Lists.newCopyOnWriteArrayList()))
             scheduler.close();
         PLUGIN_SCHEDULER_MAP.remove(plugin);
     }
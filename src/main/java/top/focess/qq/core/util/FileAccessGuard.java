@@ -0,0 +1,105 @@
+package top.focess.qq.core.util;
+
+import com.google.common.collect.Maps;
+import org.jetbrains.annotations.NotNull;
+import top.focess.qq.FocessQQ;
+import top.focess.qq.api.plugin.Plugin;
+import top.focess.qq.core.permission.Permission;
+import top.focess.qq.core.plugin.PluginClassLoader;
+import top.focess.qq.core.plugin.PluginCoreClassLoader;
+
+import java.io.File;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Guard the files of the main plugin. A plugin can only access the files in the main plugin folder if they are in its own folder or it has the permission {@link Permission#ACCESS_MAIN_FILE}.
+ * It is used by {@link FocessSecurityManager}, and it is called directly where the framework opens files for plugins, because the SecurityManager is not supported since JDK 18.
+ */
+public class FileAccessGuard {
+
+    private static final StackWalker STACK_WALKER = StackWalker.getInstance(StackWalker.Option.RETAIN_CLASS_REFERENCE);
+
+    /**
+     * The max number of the granted paths cached for one class
+     */
+    private static final int MAX_GRANTED_PATHS = 1024;
+
+    /**
+     * The absolute path of the folder of each plugin, keyed by plugin name
+     */
+    private static final Map<String, String> PLUGIN_FOLDERS = Maps.newConcurrentMap();
+
+    /**
+     * The paths granted to each plugin class. The denied paths are not cached, because the permissions can be granted later.
+     */
+    private static final ClassValue<Set<String>> GRANTED_PATHS = new ClassValue<Set<String>>() {
+        @Override
+        protected Set<String> computeValue(final Class<?> type) {
+            return ConcurrentHashMap.newKeySet();
+        }
+    };
+
+    private static volatile String mainFolder;
+
+    private FileAccessGuard() {
+    }
+
+    /**
+     * Check whether the plugins in the stack of the current thread can access the file
+     *
+     * @param path the path of the file
+     * @throws top.focess.qq.core.permission.PermissionException if any plugin in the stack cannot access the file
+     */
+    public static void checkAccess(@NotNull final String path) {
+        // no plugin class can be in the stack
+        if (!PluginCoreClassLoader.hasPluginClassLoader())
+            return;
+        final String absolutePath = new File(path).getAbsolutePath();
+        if (!isIn(absolutePath, getMainFolder()))
+            return;
+        STACK_WALKER.forEach(frame -> {
+            final Class<?> clazz = frame.getDeclaringClass();
+            // the framework classes never belong to a plugin
+            if (!(clazz.getClassLoader() instanceof PluginClassLoader))
+                return;
+            final Set<String> granted = GRANTED_PATHS.get(clazz);
+            if (granted.contains(absolutePath))
+                return;
+            // the plugin is attached to its loader partway through loading, so it is resolved every time until the access is granted
+            final Plugin plugin = PluginCoreClassLoader.getPluginByClass(clazz);
+            if (plugin == null)
+                return;
+            if (!isIn(absolutePath, getFolder(plugin)))
+                Permission.checkPermission(plugin, Permission.ACCESS_MAIN_FILE);
+            if (granted.size() >= MAX_GRANTED_PATHS)
+                granted.clear();
+            granted.add(absolutePath);
+        });
+    }
+
+    /**
+     * Check whether the plugins in the stack of the current thread can access the file
+     *
+     * @param file the file
+     * @throws top.focess.qq.core.permission.PermissionException if any plugin in the stack cannot access the file
+     */
+    public static void checkAccess(@NotNull final File file) {
+        checkAccess(file.getPath());
+    }
+
+    private static boolean isIn(final String path, final String folder) {
+        return path.startsWith(folder) && (path.length() == folder.length() || path.charAt(folder.length()) == File.separatorChar);
+    }
+
+    private static String getMainFolder() {
+        if (mainFolder == null)
+            mainFolder = FocessQQ.getMainPlugin().getDefaultFolder().getAbsolutePath();
+        return mainFolder;
+    }
+
+    private static String getFolder(final Plugin plugin) {
+        return PLUGIN_FOLDERS.computeIfAbsent(plugin.getName(), k -> plugin.getDefaultFolder().getAbsolutePath());
+    }
+}
@@ -0,0 +1,67 @@
+package top.focess.qq.core.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free latency histogram with power-of-two nanosecond buckets. Percentiles are approximated by the upper bound of the bucket.
+ */
+public class LatencyHistogram {
+
+    private static final int BUCKETS = 64;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+
+    /**
+     * Record one latency
+     *
+     * @param nanos the latency in nanoseconds
+     */
+    public void record(final long nanos) {
+        final long value = Math.max(nanos, 1);
+        this.buckets.incrementAndGet(BUCKETS - 1 - Long.numberOfLeadingZeros(value));
+        this.count.incrementAndGet();
+        this.max.accumulateAndGet(value, Math::max);
+        this.sum.addAndGet(value);
+    }
+
+    /**
+     * Get the approximate latency at the percentile
+     *
+     * @param percentile the percentile between 0 and 1
+     * @return the approximate latency in nanoseconds, or 0 if there is no record
+     */
+    public long getPercentile(final double percentile) {
+        final long total = this.count.get();
+        if (total == 0)
+            return 0;
+        final long rank = Math.max(1, (long) Math.ceil(total * percentile));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += this.buckets.get(i);
+            if (seen >= rank)
+                return Math.min(i == BUCKETS - 1 ? Long.MAX_VALUE : (1L << (i + 1)) - 1, this.getMax());
+        }
+        return this.getMax();
+    }
+
+    public long getCount() {
+        return this.count.get();
+    }
+
+    public long getMax() {
+        return this.max.get();
+    }
+
+    /**
+     * Get the sum of all the recorded latencies
+     *
+     * @return the sum in nanoseconds
+     */
+    public long getSum() {
+        return this.sum.get();
+    }
+}
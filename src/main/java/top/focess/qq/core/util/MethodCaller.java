@@ -1,34 +1,42 @@
 package top.focess.qq.core.util;
 
 import org.checkerframework.checker.nullness.qual.Nullable;
-import top.focess.qq.core.plugin.PluginCoreClassLoader;
+import top.focess.qq.core.plugin.PluginClassLoader;
 
-import java.util.Arrays;
 import java.util.List;
-import java.util.Objects;
 import java.util.stream.Collectors;
 
 public class MethodCaller {
 
+    private static final StackWalker STACK_WALKER = StackWalker.getInstance(StackWalker.Option.RETAIN_CLASS_REFERENCE);
+
+    /**
+     * Get the class which calls the method calling this method. It only walks the top frames of the stack.
+     *
+     * @return the caller class, or null if there is no such class
+     */
     @Nullable
     public static Class<?> getCallerClass() {
-        final StackTraceElement[] stackTraceElements = Thread.currentThread().getStackTrace();
-        if (stackTraceElements.length < 4)
-            return null;
-        try {
-            return PluginCoreClassLoader.forName(stackTraceElements[3].getClassName());
-        } catch (final ClassNotFoundException e) {
-            return null;
-        }
+        // skip this method and the method calling this method
+        return STACK_WALKER.walk(frames -> frames.skip(2).findFirst()).map(StackWalker.StackFrame::getDeclaringClass).orElse(null);
+    }
+
+    /**
+     * Get the first frame in the stack of the current thread whose class is defined by a PluginClassLoader
+     *
+     * @return the first plugin frame, or null if there is no plugin class in the stack
+     */
+    @Nullable
+    public static StackTraceElement getPluginFrame() {
+        return STACK_WALKER.walk(frames -> frames.filter(frame -> frame.getDeclaringClass().getClassLoader() instanceof PluginClassLoader).findFirst()).map(StackWalker.StackFrame::toStackTraceElement).orElse(null);
     }
 
+    /**
+     * Get all the distinct classes in the stack of the current thread
+     *
+     * @return all the distinct classes in the stack
+     */
     public static List<Class<?>> getAllCallerClass() {
-        return Arrays.stream(Thread.currentThread().getStackTrace()).map(StackTraceElement::getClassName).map(i -> {
-            try {
-                return PluginCoreClassLoader.forName(i);
-            } catch (ClassNotFoundException e) {
-                return null;
-            }
-        }).filter(Objects::nonNull).collect(Collectors.toList());
+        return STACK_WALKER.walk(frames -> frames.map(StackWalker.StackFrame::getDeclaringClass).distinct().collect(Collectors.toList()));
     }
 }
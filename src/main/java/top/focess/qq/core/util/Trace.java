@@ -0,0 +1,367 @@
+package top.focess.qq.core.util;
+
+import com.google.common.collect.Lists;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.Collectors;
+
+/**
+ * A lightweight trace of one incoming message through the chat, command and reply pipeline.
+ * The trace is bound to the current thread, and it follows the tasks wrapped by {@link #wrap(Runnable)} or {@link #wrap(Callable)} across the scheduler hops.
+ * All the methods do nothing but a ThreadLocal lookup if there is no trace in the current thread.
+ * Only one of every {@link #getSampleRate()} messages is traced, and the names are passed as a constant and a detail, so nothing is allocated for the messages which are not traced.
+ */
+public final class Trace {
+
+    private static final ThreadLocal<Trace> CURRENT = new ThreadLocal<>();
+
+    private static final AtomicLong ID = new AtomicLong();
+
+    /**
+     * The count of the recent traces kept for {@link #getSlowestTraces(int)}
+     */
+    private static final int RECENT_TRACES = 256;
+
+    private static final int MAX_SPANS = 128;
+
+    private static final int DEFAULT_SAMPLE_RATE = 100;
+
+    private static final AtomicReferenceArray<Trace> RECENT = new AtomicReferenceArray<>(RECENT_TRACES);
+
+    private static final Scope NOOP_SCOPE = () -> {
+    };
+
+    private static final Span NOOP_SPAN = new Span(null, null, null, 0);
+
+    private static volatile int sampleRate = DEFAULT_SAMPLE_RATE;
+
+    private final long id;
+    private final String name;
+    @Nullable
+    private final Object detail;
+    private final long start = System.nanoTime();
+    private final List<Span> spans = Lists.newArrayList();
+    private volatile long end = this.start;
+
+    private Trace(final String name, @Nullable final Object detail) {
+        this.id = ID.incrementAndGet();
+        this.name = name;
+        this.detail = detail;
+    }
+
+    /**
+     * Set how many messages are traced
+     *
+     * @param sampleRate trace one of every sampleRate messages, 1 to trace all the messages, 0 to disable the tracing
+     */
+    public static void setSampleRate(final int sampleRate) {
+        Trace.sampleRate = Math.max(sampleRate, 0);
+    }
+
+    public static int getSampleRate() {
+        return sampleRate;
+    }
+
+    private static boolean sample() {
+        final int rate = sampleRate;
+        return rate == 1 || rate > 1 && ThreadLocalRandom.current().nextInt(rate) == 0;
+    }
+
+    /**
+     * Start a new trace in the current thread if the message is sampled
+     *
+     * @param name the name of the trace
+     * @return the scope which restores the previous trace of the current thread when closed
+     */
+    @NotNull
+    public static Scope begin(@NotNull final String name) {
+        if (!sample())
+            return NOOP_SCOPE;
+        return begin0(name, null);
+    }
+
+    /**
+     * Start a new trace in the current thread if the message is sampled
+     *
+     * @param name the constant name of the trace
+     * @param id   the id appended to the name, for example the group id
+     * @return the scope which restores the previous trace of the current thread when closed
+     */
+    @NotNull
+    public static Scope begin(@NotNull final String name, final long id) {
+        if (!sample())
+            return NOOP_SCOPE;
+        return begin0(name, id);
+    }
+
+    private static Scope begin0(final String name, @Nullable final Object detail) {
+        final Trace trace = new Trace(name, detail);
+        RECENT.set((int) (trace.id % RECENT_TRACES), trace);
+        return resume(trace);
+    }
+
+    @Nullable
+    public static Trace current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Start a span of the current trace
+     *
+     * @param name the name of the span
+     * @return the span which ends when closed
+     */
+    @NotNull
+    public static Span span(@NotNull final String name) {
+        return span(name, null);
+    }
+
+    /**
+     * Start a span of the current trace
+     *
+     * @param name   the constant name of the span
+     * @param detail the detail appended to the name, the simple name is used for a class
+     * @return the span which ends when closed
+     */
+    @NotNull
+    public static Span span(@NotNull final String name, @Nullable final Object detail) {
+        final Trace trace = CURRENT.get();
+        if (trace == null)
+            return NOOP_SPAN;
+        return new Span(trace, name, detail, System.nanoTime());
+    }
+
+    /**
+     * Start a span of the current trace
+     *
+     * @param name the constant name of the span
+     * @param id   the id appended to the name
+     * @return the span which ends when closed
+     */
+    @NotNull
+    public static Span span(@NotNull final String name, final long id) {
+        final Trace trace = CURRENT.get();
+        if (trace == null)
+            return NOOP_SPAN;
+        return new Span(trace, name, id, System.nanoTime());
+    }
+
+    /**
+     * Record a span of the current trace which starts at the given time and ends now, for example the time a task waits in a scheduler
+     *
+     * @param name  the name of the span
+     * @param start the start time of the span by {@link System#nanoTime()}
+     */
+    public static void record(@NotNull final String name, final long start) {
+        record(name, null, start);
+    }
+
+    /**
+     * Record a span of the current trace which starts at the given time and ends now
+     *
+     * @param name   the constant name of the span
+     * @param detail the detail appended to the name, the simple name is used for a class
+     * @param start  the start time of the span by {@link System#nanoTime()}
+     */
+    public static void record(@NotNull final String name, @Nullable final Object detail, final long start) {
+        final Trace trace = CURRENT.get();
+        if (trace != null)
+            new Span(trace, name, detail, start).close();
+    }
+
+    /**
+     * Record a span of the current trace which starts at the given time and ends now
+     *
+     * @param name  the constant name of the span
+     * @param id    the id appended to the name
+     * @param start the start time of the span by {@link System#nanoTime()}
+     */
+    public static void record(@NotNull final String name, final long id, final long start) {
+        final Trace trace = CURRENT.get();
+        if (trace != null)
+            new Span(trace, name, id, start).close();
+    }
+
+    private static String formatName(final String name, @Nullable final Object detail) {
+        if (detail == null)
+            return name;
+        return name + " " + (detail instanceof Class ? ((Class<?>) detail).getSimpleName() : detail);
+    }
+
+    /**
+     * Continue the trace in the current thread, used when the task is not wrapped by {@link #wrap(Runnable)} or {@link #wrap(Callable)}
+     *
+     * @param trace the trace captured by {@link #current()}, or null if there is no trace
+     * @return the scope which restores the previous trace of the current thread when closed
+     */
+    @NotNull
+    public static Scope resume(@Nullable final Trace trace) {
+        if (trace == null)
+            return NOOP_SCOPE;
+        final Trace previous = CURRENT.get();
+        CURRENT.set(trace);
+        return () -> {
+            if (previous == null)
+                CURRENT.remove();
+            else CURRENT.set(previous);
+        };
+    }
+
+    /**
+     * Make the runnable run in the trace of the current thread
+     *
+     * @param runnable the runnable
+     * @return the runnable bound to the current trace, or the runnable itself if there is no trace in the current thread
+     */
+    @NotNull
+    public static Runnable wrap(@NotNull final Runnable runnable) {
+        final Trace trace = CURRENT.get();
+        if (trace == null)
+            return runnable;
+        return () -> {
+            try (Scope ignored = resume(trace)) {
+                runnable.run();
+            }
+        };
+    }
+
+    /**
+     * Make the callable run in the trace of the current thread
+     *
+     * @param callable the callable
+     * @param <V>      the result type
+     * @return the callable bound to the current trace, or the callable itself if there is no trace in the current thread
+     */
+    @NotNull
+    public static <V> Callable<V> wrap(@NotNull final Callable<V> callable) {
+        final Trace trace = CURRENT.get();
+        if (trace == null)
+            return callable;
+        return () -> {
+            try (Scope ignored = resume(trace)) {
+                return callable.call();
+            }
+        };
+    }
+
+    /**
+     * Get the slowest traces of the recent traces
+     *
+     * @param count the max count of the traces
+     * @return the slowest traces, the slowest first
+     */
+    @NotNull
+    public static List<Trace> getSlowestTraces(final int count) {
+        final List<Trace> traces = Lists.newArrayList();
+        for (int i = 0; i < RECENT_TRACES; i++) {
+            final Trace trace = RECENT.get(i);
+            if (trace != null)
+                traces.add(trace);
+        }
+        return traces.stream().sorted(Comparator.comparingLong(Trace::getDuration).reversed()).limit(count).collect(Collectors.toList());
+    }
+
+    private void add(final Span span) {
+        synchronized (this.spans) {
+            if (this.spans.size() < MAX_SPANS)
+                this.spans.add(span);
+            if (span.end > this.end)
+                this.end = span.end;
+        }
+    }
+
+    public long getId() {
+        return this.id;
+    }
+
+    public String getName() {
+        return formatName(this.name, this.detail);
+    }
+
+    /**
+     * Get the duration from the start of the trace to the end of its last span
+     *
+     * @return the duration in nanoseconds
+     */
+    public long getDuration() {
+        return this.end - this.start;
+    }
+
+    /**
+     * Get the finished spans in the order they end
+     *
+     * @return the finished spans
+     */
+    @NotNull
+    public List<Span> getSpans() {
+        synchronized (this.spans) {
+            return Collections.unmodifiableList(Lists.newArrayList(this.spans));
+        }
+    }
+
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    public static final class Span implements AutoCloseable {
+
+        private final Trace trace;
+        private final String name;
+        @Nullable
+        private final Object detail;
+        private final String thread;
+        private final long start;
+        private long end;
+
+        private Span(final Trace trace, final String name, @Nullable final Object detail, final long start) {
+            this.trace = trace;
+            this.name = name;
+            this.detail = detail;
+            this.thread = trace == null ? null : Thread.currentThread().getName();
+            this.start = start;
+        }
+
+        @Override
+        public void close() {
+            if (this.trace == null || this.end != 0)
+                return;
+            this.end = System.nanoTime();
+            this.trace.add(this);
+        }
+
+        public String getName() {
+            return formatName(this.name, this.detail);
+        }
+
+        public String getThread() {
+            return this.thread;
+        }
+
+        /**
+         * Get the offset from the start of the trace
+         *
+         * @return the offset in nanoseconds
+         */
+        public long getOffset() {
+            return this.start - this.trace.start;
+        }
+
+        /**
+         * Get the duration of the span
+         *
+         * @return the duration in nanoseconds
+         */
+        public long getDuration() {
+            return this.end - this.start;
+        }
+    }
+}
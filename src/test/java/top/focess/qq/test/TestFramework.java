@@ -1,8 +1,12 @@
 package top.focess.qq.test;
 
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
 import com.google.common.collect.Lists;
 import org.jetbrains.annotations.NotNull;
 import org.junit.jupiter.api.*;
+import org.slf4j.LoggerFactory;
 import top.focess.command.CommandArgument;
 import top.focess.command.CommandDuplicateException;
 import top.focess.command.CommandResult;
@@ -10,17 +14,70 @@ import top.focess.qq.FocessQQ;
 import top.focess.qq.api.bot.BotLoginException;
 import top.focess.qq.api.command.Command;
 import top.focess.qq.api.command.CommandLine;
+import top.focess.qq.api.command.CommandResultCache;
 import top.focess.qq.api.command.CommandSender;
+import top.focess.qq.api.command.SpecialArgumentComplexHandler;
 import top.focess.qq.api.event.*;
 import top.focess.qq.api.event.bot.BotLoginEvent;
 import top.focess.qq.api.event.chat.ConsoleChatEvent;
+import top.focess.qq.api.event.plugin.PluginLoadEvent;
 import top.focess.qq.api.plugin.Plugin;
+import top.focess.qq.api.plugin.PluginDescription;
+import top.focess.qq.api.scheduler.Schedulers;
+import top.focess.qq.api.util.IOHandler;
+import top.focess.qq.api.util.config.DefaultConfig;
+import top.focess.qq.api.util.logger.FocessLogger;
+import top.focess.qq.core.bot.contact.SimpleFriend;
+import top.focess.qq.core.bot.synthetic.SyntheticBot;
+import top.focess.qq.core.bot.synthetic.SyntheticBotManager;
+import top.focess.qq.core.bot.synthetic.SyntheticConfiguration;
+import top.focess.qq.core.bot.synthetic.SyntheticLoad;
+import top.focess.qq.core.bot.synthetic.SyntheticProfile;
+import top.focess.qq.core.event.EventIngress;
+import top.focess.qq.core.event.EventInvoker;
+import top.focess.qq.core.metrics.Metrics;
+import top.focess.qq.core.plugin.PluginClassLoader;
+import top.focess.qq.core.permission.Permission;
+import top.focess.qq.core.permission.PermissionAudit;
+import top.focess.qq.core.permission.PermissionException;
+import top.focess.qq.core.plugin.PluginCoreClassLoader;
+import top.focess.qq.core.plugin.PluginRegistryProcessor;
 import top.focess.qq.test.environment.TestEnvironment;
 import top.focess.scheduler.AScheduler;
+import top.focess.scheduler.Scheduler;
+import top.focess.util.yaml.YamlConfiguration;
 
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
 import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static top.focess.command.CommandArgument.ofLong;
@@ -91,6 +148,342 @@ public class TestFramework {
         assertTrue(flag.get());
     }
 
+    @Test
+    void testSubmitAsyncEvent() {
+        AtomicBoolean flag = new AtomicBoolean(false);
+        Listener listener = new Listener() {
+            @EventHandler
+            public void onCustomEvent(CustomEvent event) {
+                if (event.customKey.equals("async"))
+                    flag.set(true);
+            }
+        };
+        ListenerHandler.register(FocessQQ.getMainPlugin(), listener);
+        CustomEvent event = new CustomEvent("async");
+        CompletableFuture<CustomEvent> future = EventManager.submitAsync(event);
+        assertSame(event, assertDoesNotThrow(() -> future.get(10, TimeUnit.SECONDS)));
+        assertTrue(flag.get());
+        ExecutionException e = assertThrows(ExecutionException.class, () -> EventManager.submitAsync(new ErrorEvent()).get(10, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof EventSubmitException);
+        ListenerHandler.unregister(FocessQQ.getMainPlugin(), listener);
+    }
+
+    static class IsolationEvent extends Event {
+        private static final ListenerHandler LISTENER_HANDLER = new ListenerHandler();
+    }
+
+    @Test
+    void testListenerIsolation() {
+        Logger logger = (Logger) LoggerFactory.getLogger(FocessLogger.class);
+        ListAppender<ILoggingEvent> appender = new ListAppender<>();
+        appender.start();
+        logger.addAppender(appender);
+        AtomicBoolean flag = new AtomicBoolean(false);
+        CountDownLatch cancelled = new CountDownLatch(1);
+        Listener listener = new Listener() {
+            @EventHandler(priority = EventPriority.HIGHEST, timeout = 100)
+            public void onSlowEvent(IsolationEvent event) {
+                try {
+                    Thread.sleep(10000);
+                } catch (InterruptedException e) {
+                    cancelled.countDown();
+                }
+            }
+
+            @EventHandler(priority = EventPriority.HIGH)
+            public void onErrorEvent(IsolationEvent event) {
+                throw new IllegalStateException("isolation");
+            }
+
+            @EventHandler(priority = EventPriority.LOW)
+            public void onLaterEvent(IsolationEvent event) {
+                flag.set(true);
+            }
+        };
+        ListenerHandler.register(FocessQQ.getMainPlugin(), listener);
+        long start = System.nanoTime();
+        assertDoesNotThrow(() -> EventManager.submit(new IsolationEvent()));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        assertTrue(flag.get());
+        assertTrue(assertDoesNotThrow(() -> cancelled.await(5, TimeUnit.SECONDS)));
+        assertTrue(appender.list.stream().anyMatch(i -> i.getThrowableProxy() != null && i.getThrowableProxy().getClassName().equals(TimeoutException.class.getName())));
+        assertTrue(appender.list.stream().anyMatch(i -> i.getThrowableProxy() != null && i.getThrowableProxy().getClassName().equals(IllegalStateException.class.getName())));
+        ListenerHandler.unregister(FocessQQ.getMainPlugin(), listener);
+        logger.detachAppender(appender);
+    }
+
+    static class OrderEvent extends Event {
+        private static final ListenerHandler LISTENER_HANDLER = new ListenerHandler();
+    }
+
+    @Test
+    void testListenerOrder() {
+        List<String> order = Collections.synchronizedList(Lists.newArrayList());
+        Listener listener1 = new Listener() {
+            @EventHandler(priority = EventPriority.LOW)
+            public void onLow(OrderEvent event) {
+                order.add("low1");
+            }
+
+            @EventHandler(priority = EventPriority.HIGHEST)
+            public void onHighest(OrderEvent event) {
+                order.add("highest1");
+            }
+        };
+        Listener listener2 = new Listener() {
+            @EventHandler(priority = EventPriority.LOW)
+            public void onLow(OrderEvent event) {
+                order.add("low2");
+            }
+
+            @EventHandler
+            public void onNormal(OrderEvent event) {
+                order.add("normal2");
+            }
+        };
+        ListenerHandler.register(FocessQQ.getMainPlugin(), listener1);
+        ListenerHandler.register(FocessQQ.getMainPlugin(), listener2);
+        assertDoesNotThrow(() -> EventManager.submit(new OrderEvent()));
+        // sorted by priority, and the listeners with the same priority are called in registration order
+        assertEquals(Lists.newArrayList("highest1", "normal2", "low1", "low2"), order);
+        ListenerHandler.unregister(FocessQQ.getMainPlugin(), listener1);
+        order.clear();
+        assertDoesNotThrow(() -> EventManager.submit(new OrderEvent()));
+        assertEquals(Lists.newArrayList("normal2", "low2"), order);
+        ListenerHandler.unregister(FocessQQ.getMainPlugin(), listener2);
+    }
+
+    static class LaneEvent extends Event {
+        private static final ListenerHandler LISTENER_HANDLER = new ListenerHandler();
+        private final int index;
+
+        public LaneEvent(int index) {
+            this.index = index;
+        }
+    }
+
+    @Test
+    void testEventLane() {
+        List<Integer> indexes = Collections.synchronizedList(Lists.newArrayList());
+        Listener listener = new Listener() {
+            @EventHandler
+            public void onLaneEvent(LaneEvent event) throws InterruptedException {
+                // the earlier events are slower, so they would be overtaken without the lane
+                if (event.index < 5)
+                    Thread.sleep(20);
+                indexes.add(event.index);
+            }
+        };
+        ListenerHandler.register(FocessQQ.getMainPlugin(), listener);
+        List<Integer> expected = Lists.newArrayList();
+        CompletableFuture<LaneEvent> future = null;
+        for (int i = 0; i < 50; i++) {
+            expected.add(i);
+            future = EventManager.submitAsync(123456L, new LaneEvent(i));
+        }
+        CompletableFuture<LaneEvent> last = future;
+        assertDoesNotThrow(() -> last.get(10, TimeUnit.SECONDS));
+        assertEquals(expected, indexes);
+        ListenerHandler.unregister(FocessQQ.getMainPlugin(), listener);
+    }
+
+    static class IngressEvent extends Event {
+
+    }
+
+    static class OtherIngressEvent extends Event {
+
+    }
+
+    /**
+     * Create a scheduler whose thread is occupied until the latch is released, so the submitted events stay in the ingress
+     */
+    private static Scheduler newBlockedScheduler(CountDownLatch release) {
+        Scheduler scheduler = Schedulers.newFocessScheduler(FocessQQ.getMainPlugin(), "TestIngress");
+        scheduler.run(() -> assertDoesNotThrow(() -> release.await(10, TimeUnit.SECONDS)), "block");
+        return scheduler;
+    }
+
+    @Test
+    void testIngressBlock() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Scheduler scheduler = newBlockedScheduler(release);
+        EventIngress ingress = new EventIngress(1, IngressPolicy.BLOCK, IngressPolicy.BLOCK, event -> {});
+        CompletableFuture<IngressEvent> first = ingress.submit(scheduler, new IngressEvent());
+        CompletableFuture<CompletableFuture<IngressEvent>> second = CompletableFuture.supplyAsync(() -> ingress.submit(scheduler, new IngressEvent()));
+        assertThrows(TimeoutException.class, () -> second.get(200, TimeUnit.MILLISECONDS));
+        release.countDown();
+        assertNotNull(first.get(10, TimeUnit.SECONDS));
+        assertNotNull(second.get(10, TimeUnit.SECONDS).get(10, TimeUnit.SECONDS));
+        assertEquals(0, ingress.getDropped());
+        scheduler.close();
+    }
+
+    @Test
+    void testIngressDropOldest() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Scheduler scheduler = newBlockedScheduler(release);
+        EventIngress ingress = new EventIngress(2, IngressPolicy.DROP_OLDEST, IngressPolicy.DROP_OLDEST, event -> {});
+        CompletableFuture<IngressEvent> first = ingress.submit(scheduler, new IngressEvent());
+        CompletableFuture<OtherIngressEvent> second = ingress.submit(scheduler, new OtherIngressEvent());
+        CompletableFuture<IngressEvent> third = ingress.submit(scheduler, new IngressEvent());
+        assertNull(first.get(1, TimeUnit.SECONDS));
+        assertFalse(second.isDone());
+        release.countDown();
+        assertNotNull(second.get(10, TimeUnit.SECONDS));
+        assertNotNull(third.get(10, TimeUnit.SECONDS));
+        assertEquals(1, ingress.getDropped());
+        assertEquals(1L, ingress.getDroppedByType().get(IngressEvent.class));
+        assertNull(ingress.getDroppedByType().get(OtherIngressEvent.class));
+        assertEquals(IngressPolicy.DROP_OLDEST, EventManager.getIngressMessagePolicy());
+        scheduler.close();
+    }
+
+    @Test
+    void testIngressDropByType() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Scheduler scheduler = newBlockedScheduler(release);
+        EventIngress ingress = new EventIngress(2, IngressPolicy.DROP_BY_TYPE, IngressPolicy.DROP_BY_TYPE, event -> {});
+        CompletableFuture<IngressEvent> first = ingress.submit(scheduler, new IngressEvent());
+        CompletableFuture<OtherIngressEvent> second = ingress.submit(scheduler, new OtherIngressEvent());
+        // drop the oldest event of the same type
+        CompletableFuture<OtherIngressEvent> third = ingress.submit(scheduler, new OtherIngressEvent());
+        assertNull(second.get(1, TimeUnit.SECONDS));
+        assertFalse(first.isDone());
+        // drop the oldest event if there is no event of the same type
+        CompletableFuture<ErrorEvent> fourth = ingress.submit(scheduler, new ErrorEvent());
+        assertNull(first.get(1, TimeUnit.SECONDS));
+        release.countDown();
+        assertNotNull(third.get(10, TimeUnit.SECONDS));
+        assertNotNull(fourth.get(10, TimeUnit.SECONDS));
+        assertEquals(2, ingress.getDropped());
+        assertEquals(1L, ingress.getDroppedByType().get(IngressEvent.class));
+        assertEquals(1L, ingress.getDroppedByType().get(OtherIngressEvent.class));
+        scheduler.close();
+    }
+
+    @Test
+    void testIngressSample() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Scheduler scheduler = newBlockedScheduler(release);
+        EventIngress ingress = new EventIngress(1, IngressPolicy.SAMPLE, IngressPolicy.SAMPLE, event -> {});
+        CompletableFuture<IngressEvent> first = ingress.submit(scheduler, new IngressEvent());
+        // drop the submitted event itself
+        CompletableFuture<IngressEvent> second = ingress.submit(scheduler, new IngressEvent());
+        assertNull(second.get(1, TimeUnit.SECONDS));
+        release.countDown();
+        assertNotNull(first.get(10, TimeUnit.SECONDS));
+        assertEquals(1, ingress.getDropped());
+        assertEquals(1L, ingress.getDroppedByType().get(IngressEvent.class));
+        scheduler.close();
+    }
+
+    static class PlanEvent extends Event {
+        private static final ListenerHandler LISTENER_HANDLER = new ListenerHandler();
+    }
+
+    @Test
+    void testDispatchPlan() {
+        AtomicInteger count = new AtomicInteger();
+        assertDoesNotThrow(() -> EventManager.submit(new PlanEvent()));
+        Listener listener = new Listener() {
+            @EventHandler
+            public void onPlanEvent(PlanEvent event) {
+                count.incrementAndGet();
+            }
+        };
+        ListenerHandler.register(FocessQQ.getMainPlugin(), listener);
+        assertDoesNotThrow(() -> EventManager.submit(new PlanEvent()));
+        assertEquals(1, count.get());
+        ListenerHandler.unregister(FocessQQ.getMainPlugin(), listener);
+        assertDoesNotThrow(() -> EventManager.submit(new PlanEvent()));
+        assertEquals(1, count.get());
+    }
+
+    @Test
+    void testSubmitBatchEvent() {
+        AtomicInteger size = new AtomicInteger();
+        CountDownLatch latch = new CountDownLatch(1);
+        Listener listener = new Listener() {
+            @BatchEventHandler(maxSize = 3, maxDelay = 60000)
+            public void onCustomEvents(List<CustomEvent> events) {
+                size.set(events.size());
+                latch.countDown();
+            }
+        };
+        ListenerHandler.register(FocessQQ.getMainPlugin(), listener);
+        for (int i = 0; i < 3; i++)
+            assertDoesNotThrow(() -> EventManager.submit(new CustomEvent("customKey")));
+        assertTrue(assertDoesNotThrow(() -> latch.await(10, TimeUnit.SECONDS)));
+        assertEquals(3, size.get());
+        ListenerHandler.unregister(FocessQQ.getMainPlugin(), listener);
+    }
+
+    @Test
+    void testSubmitBatchEventBurst() {
+        List<Integer> sizes = Collections.synchronizedList(Lists.newArrayList());
+        AtomicInteger total = new AtomicInteger();
+        CountDownLatch latch = new CountDownLatch(1);
+        Listener listener = new Listener() {
+            @BatchEventHandler(maxSize = 3, maxDelay = 100)
+            public void onCustomEvents(List<CustomEvent> events) {
+                sizes.add(events.size());
+                if (total.addAndGet(events.size()) == 10)
+                    latch.countDown();
+            }
+        };
+        ListenerHandler.register(FocessQQ.getMainPlugin(), listener);
+        for (int i = 0; i < 10; i++)
+            EventManager.submitAsync(new CustomEvent("customKey"));
+        assertTrue(assertDoesNotThrow(() -> latch.await(10, TimeUnit.SECONDS)));
+        assertTrue(sizes.stream().allMatch(i -> i <= 3));
+        ListenerHandler.unregister(FocessQQ.getMainPlugin(), listener);
+        assertDoesNotThrow(() -> EventManager.submit(new CustomEvent("customKey")));
+        assertEquals(10, total.get());
+    }
+
+    static class InvokerListener implements Listener {
+
+        @EventHandler
+        public void onCustomEvent(CustomEvent event) {
+            throw new IllegalStateException(event.customKey);
+        }
+
+        @EventHandler
+        public static void onStaticCustomEvent(CustomEvent event) {
+            throw new IllegalArgumentException(event.customKey);
+        }
+    }
+
+    @Test
+    void testEventInvoker() throws NoSuchMethodException {
+        Listener listener = new InvokerListener();
+        // the compiled invoker is defined in the listener class, while the reflection invoker is defined in EventInvoker
+        EventInvoker<Event> compiled = EventInvoker.compile(InvokerListener.class.getDeclaredMethod("onCustomEvent", CustomEvent.class));
+        assertTrue(compiled.getClass().getName().startsWith(InvokerListener.class.getName()));
+        assertEquals("compiled", assertThrows(IllegalStateException.class, () -> compiled.invoke(listener, new CustomEvent("compiled"))).getMessage());
+        // the static method cannot be bound by LambdaMetafactory, it is invoked by a method handle
+        EventInvoker<Event> reflective = EventInvoker.compile(InvokerListener.class.getDeclaredMethod("onStaticCustomEvent", CustomEvent.class));
+        assertTrue(reflective.getClass().getName().startsWith(EventInvoker.class.getName()));
+        assertTrue(reflective instanceof EventInvoker.HandleInvoker);
+        assertEquals("reflective", assertThrows(IllegalArgumentException.class, () -> reflective.invoke(listener, new CustomEvent("reflective"))).getMessage());
+    }
+
+    @Test
+    void testPluginEventInvoker() throws Exception {
+        final Path classes = Files.createTempDirectory("invoker");
+        compile(classes, false, "RegistryPlugin", REGISTRY_PLUGIN, "RegistryListener", REGISTRY_LISTENER);
+        final PluginClassLoader classLoader = new PluginClassLoader(pluginJar(classes, "InvokerPlugin"));
+        assertTrue(classLoader.load());
+        final Plugin plugin = classLoader.getPlugin();
+        final Class<?> listenerClass = classLoader.findClass("registry.RegistryListener", false);
+        // the listener class of a plugin is in another module, so it is invoked by a method handle instead of reflection
+        final EventInvoker<Event> invoker = EventInvoker.compile(listenerClass.getMethod("onLoad", PluginLoadEvent.class));
+        assertTrue(invoker instanceof EventInvoker.HandleInvoker);
+        assertDoesNotThrow(() -> invoker.invoke((Listener) listenerClass.getConstructor().newInstance(), new PluginLoadEvent(plugin)));
+        PluginClassLoader.disablePlugin(plugin);
+    }
+
     @RepeatedTest(100)
     void testSubmitErrorEvent() {
         assertThrows(EventSubmitException.class, () -> EventManager.submit(new ErrorEvent()));
@@ -114,6 +507,52 @@ public class TestFramework {
         assertTrue(flag.get());
     }
 
+    @Test
+    void testSyntheticBot() throws Exception {
+        Command command = new Command("syntheticping") {
+            @Override
+            public void init() {
+                this.addExecutor((sender, dataCollection, ioHandler) -> {
+                    ioHandler.output("pong");
+                    return CommandResult.ALLOW;
+                });
+            }
+
+            @Override
+            public @NotNull List<String> usage(CommandSender sender) {
+                return Lists.newArrayList();
+            }
+        };
+        Command.register(Plugin.plugin(), command);
+        // every generated message is the command, and its reply to the group is matched to it
+        SyntheticBotManager botManager = new SyntheticBotManager(new SyntheticConfiguration(2, 3, 100, SyntheticProfile.CONSTANT, 100, List.of("syntheticping"), Collections.emptyList()));
+        SyntheticBot bot = (SyntheticBot) botManager.loginDirectly(456789L, "", FocessQQ.getMainPlugin());
+        assertTrue(bot.isOnline());
+        assertEquals(2, bot.getGroups().size());
+        assertEquals(3, bot.getGroups().get(0).getMembers().size());
+        SyntheticLoad load = bot.getLoad();
+        long deadline = System.currentTimeMillis() + 10000;
+        while (load.getReplied() < 5 && System.currentTimeMillis() < deadline)
+            Thread.sleep(50);
+        assertTrue(botManager.logout(bot));
+        assertFalse(bot.isOnline());
+        assertTrue(load.getReplied() >= 5);
+        assertTrue(load.getGenerated() >= load.getCompleted());
+        assertTrue(load.getCompleted() > 0);
+        assertTrue(load.getReplyLatency().getCount() >= 5);
+        assertTrue(load.getEventLatency().getCount() > 0);
+        // no message is generated after logout, once the running tick is finished
+        Thread.sleep(50);
+        long generated = load.getGenerated();
+        Thread.sleep(100);
+        assertEquals(generated, load.getGenerated());
+        // the plugins replying with an image or audio work under the load too
+        assertNotNull(assertDoesNotThrow(() -> bot.uploadImage(bot.getGroups().get(0), new ByteArrayInputStream(new byte[0]))));
+        assertNotNull(assertDoesNotThrow(() -> bot.uploadAudio(bot.getGroups().get(0), new ByteArrayInputStream(new byte[0]))));
+        assertSame(bot, botManager.remove(456789L));
+        command.unregister();
+    }
+
     @Test
     void testCommand() {
         try {
@@ -162,6 +601,166 @@ public class TestFramework {
         } catch (Exception e) {
             fail();
         }
+        assertSame(command, Command.getCommand("Test1"));
+        assertSame(command, Command.getCommand("TEST2"));
+        assertNull(Command.getCommand("test0"));
+        assertTrue(CommandLine.isCommand("  TEST2 a"));
+        assertFalse(CommandLine.isCommand("test0 test1"));
+        assertFalse(CommandLine.isCommand(" "));
+    }
+
+    @Test
+    void testSplitCommand() {
+        assertEquals(Lists.newArrayList("test", "a b", "\"@handler(1,2)", "\t", "x@y"), CommandLine.splitCommand("test  \"a b\" @handler(1,2) \\t x@y"));
+        assertEquals(0, CommandLine.splitCommand("   ").size());
+    }
+
+    @Test
+    void testSpecialArgument() {
+        AtomicReference<String> argument = new AtomicReference<>();
+        Command command = new Command("test9") {
+
+            @Override
+            public void init() {
+                this.addExecutor((sender, dataCollection, ioHandler) -> {
+                    argument.set(dataCollection.get());
+                    return CommandResult.ALLOW;
+                }, CommandArgument.ofString());
+            }
+
+            @Override
+            public @NotNull List<String> usage(CommandSender sender) {
+                return Lists.newArrayList();
+            }
+        };
+        Command.register(Plugin.plugin(), command);
+        SpecialArgumentComplexHandler handler = (name, sender, com, args, i, arguments) -> formatSpecialArgument(name, arguments);
+        CommandLine.register(FocessQQ.getMainPlugin(), "h", handler);
+        CommandLine.register(FocessQQ.getMainPlugin(), "h(a", handler);
+        // the values are split the same as the old String.split(",") way, which drops the trailing empty values
+        for (String special : List.of("h(a,,)", "h()", "h(a", "h", "h(,a)", "h(,)", "h(a,b)")) {
+            assertEquals(CommandResult.ALLOW, assertDoesNotThrow(() -> CommandLine.exec("test9 @" + special).get()));
+            String[] expected = splitSpecialArgument(special);
+            assertEquals(formatSpecialArgument(expected[0], Arrays.copyOfRange(expected, 1, expected.length)), argument.get(), special);
+        }
+        CommandLine.unregister(FocessQQ.getMainPlugin(), "h");
+        CommandLine.unregister(FocessQQ.getMainPlugin(), "h(a");
+        command.unregister();
+    }
+
+    private static String formatSpecialArgument(String name, String[] arguments) {
+        return name + ":" + arguments.length + ":" + String.join("|", arguments);
+    }
+
+    /**
+     * The special argument splitting before the single pass tokenizer, as the reference
+     *
+     * @return the name followed by the values
+     */
+    private static String[] splitSpecialArgument(String argument) {
+        int leftIndex = argument.indexOf('(');
+        if (leftIndex == -1 || !argument.endsWith(")"))
+            return new String[]{argument};
+        String[] values = argument.substring(leftIndex + 1, argument.length() - 1).split(",");
+        String[] ret = new String[values.length + 1];
+        ret[0] = argument.substring(0, leftIndex);
+        System.arraycopy(values, 0, ret, 1, values.length);
+        return ret;
+    }
+
+    @Test
+    void testResultCache() {
+        AtomicInteger count = new AtomicInteger();
+        Command command = new Command("test7") {
+
+            @Override
+            public void init() {
+                this.setResultCache(Duration.ofMinutes(1), 16, CommandResultCache.Scope.GLOBAL);
+                this.addExecutor((sender, dataCollection, ioHandler) -> {
+                    ioHandler.output("first " + count.incrementAndGet());
+                    ioHandler.output("second");
+                    return CommandResult.ALLOW;
+                });
+            }
+
+            @Override
+            public @NotNull List<String> usage(CommandSender sender) {
+                return Lists.newArrayList();
+            }
+        };
+        Command.register(Plugin.plugin(), command);
+        List<String> executed = Lists.newArrayList();
+        List<String> replayed = Lists.newArrayList();
+        try {
+            assertEquals(CommandResult.ALLOW, CommandLine.exec(CommandSender.CONSOLE, "test7", outputTo(executed)).get());
+            assertEquals(CommandResult.ALLOW, CommandLine.exec(CommandSender.CONSOLE, "test7", outputTo(replayed)).get());
+        } catch (Exception e) {
+            fail();
+        }
+        assertEquals(1, count.get());
+        // the cached outputs are replayed without running the command
+        assertEquals(List.of("first 1", "second"), executed);
+        assertEquals(executed, replayed);
+        assertEquals(1, command.getResultCache().size());
+        command.getResultCache().clear();
+        assertEquals(0, command.getResultCache().size());
+        command.unregister();
+    }
+
+    @Test
+    void testResultCacheSenderScope() {
+        AtomicInteger count = new AtomicInteger();
+        Command command = new Command("test8") {
+
+            @Override
+            public void init() {
+                this.setResultCache(Duration.ofMinutes(1), 16, CommandResultCache.Scope.SENDER);
+                this.addExecutor((sender, dataCollection, ioHandler) -> {
+                    ioHandler.output(sender + " " + count.incrementAndGet());
+                    return CommandResult.ALLOW;
+                });
+            }
+
+            @Override
+            public @NotNull List<String> usage(CommandSender sender) {
+                return Lists.newArrayList();
+            }
+        };
+        Command.register(Plugin.plugin(), command);
+        CommandSender friend = CommandSender.of(new SimpleFriend(FocessQQ.getBot(), 987654321L, "friend", "friend", "avatarUrl/987654321"));
+        List<String> console = Lists.newArrayList();
+        List<String> other = Lists.newArrayList();
+        try {
+            assertEquals(CommandResult.ALLOW, CommandLine.exec(CommandSender.CONSOLE, "test8", outputTo(console)).get());
+            assertEquals(CommandResult.ALLOW, CommandLine.exec(friend, "test8", outputTo(other)).get());
+            assertEquals(CommandResult.ALLOW, CommandLine.exec(CommandSender.CONSOLE, "test8", outputTo(console)).get());
+            assertEquals(CommandResult.ALLOW, CommandLine.exec(friend, "test8", outputTo(other)).get());
+        } catch (Exception e) {
+            fail();
+        }
+        // each sender runs the command once and gets its own output replayed
+        assertEquals(2, count.get());
+        assertEquals(2, command.getResultCache().size());
+        assertEquals(2, console.size());
+        assertEquals(console.get(0), console.get(1));
+        assertEquals(2, other.size());
+        assertEquals(other.get(0), other.get(1));
+        assertNotEquals(console.get(0), other.get(0));
+        command.unregister();
+    }
+
+    private static IOHandler outputTo(final List<String> outputs) {
+        return new IOHandler() {
+            @Override
+            public void output(@NotNull final String output) {
+                outputs.add(output);
+            }
+
+            @Override
+            public boolean hasInput(final int seconds) {
+                return false;
+            }
+        };
     }
 
     @Test
@@ -225,6 +824,251 @@ public class TestFramework {
         assertEquals(CommandResult.ALLOW,assertDoesNotThrow(()->CommandLine.exec("test4 test test 1 1").get()));
     }
 
+    @Test
+    void testElasticScheduler() {
+        int size = Runtime.getRuntime().availableProcessors() + 2;
+        CountDownLatch started = new CountDownLatch(size);
+        CountDownLatch release = new CountDownLatch(1);
+        Scheduler scheduler = Schedulers.newElasticScheduler(FocessQQ.getMainPlugin(), "TestElastic");
+        // more blocked tasks than the core threads still start at once
+        for (int i = 0; i < size; i++)
+            scheduler.run(() -> {
+                started.countDown();
+                assertDoesNotThrow(() -> release.await(10, TimeUnit.SECONDS));
+            }, "elastic-" + i);
+        assertTrue(assertDoesNotThrow(() -> started.await(10, TimeUnit.SECONDS)));
+        release.countDown();
+        scheduler.close();
+    }
+
+    private static final String REGISTRY_PLUGIN = "package registry;\n" +
+            "@top.focess.qq.api.plugin.PluginType\n" +
+            "public class RegistryPlugin extends top.focess.qq.api.plugin.Plugin {\n" +
+            "    public void enable() {}\n" +
+            "    public void disable() {}\n" +
+            "    public static void access(String path) throws Exception {\n" +
+            "        new top.focess.qq.api.util.config.DefaultConfig(new java.io.File(path));\n" +
+            "    }\n" +
+            "}\n";
+
+    private static final String REGISTRY_COMMAND = "package registry;\n" +
+            "@top.focess.qq.api.command.CommandType(name = \"registrytest\")\n" +
+            "public class RegistryCommand extends top.focess.qq.api.command.Command {\n" +
+            "    public void init() {}\n" +
+            "    public java.util.List<String> usage(top.focess.qq.api.command.CommandSender sender) {\n" +
+            "        return java.util.List.of();\n" +
+            "    }\n" +
+            "}\n";
+
+    private static final String REGISTRY_LISTENER = "package registry;\n" +
+            "@top.focess.qq.api.event.ListenerType\n" +
+            "public class RegistryListener implements top.focess.qq.api.event.Listener {\n" +
+            "    @top.focess.qq.api.event.EventHandler\n" +
+            "    public void onLoad(top.focess.qq.api.event.plugin.PluginLoadEvent event) {}\n" +
+            "}\n";
+
+    private static final String REGISTRY_HANDLER = "package registry;\n" +
+            "public class RegistryHandler {\n" +
+            "    @top.focess.qq.api.command.SpecialArgumentType(name = \"registryhandler\")\n" +
+            "    public static final top.focess.qq.api.command.SpecialArgumentComplexHandler HANDLER = (name, sender, command, args, i, arguments) -> \"handled\";\n" +
+            "}\n";
+
+    /**
+     * Compile the sources into the output directory with the classpath of the tests and the output directory
+     *
+     * @param output the output directory
+     * @param processor whether the PluginRegistryProcessor runs
+     * @param sources the class names and the sources
+     */
+    private static void compile(final Path output, final boolean processor, final String... sources) throws IOException {
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        final List<JavaFileObject> units = Lists.newArrayList();
+        for (int i = 0; i < sources.length; i += 2) {
+            final String source = sources[i + 1];
+            units.add(new SimpleJavaFileObject(URI.create("string:///registry/" + sources[i] + ".java"), JavaFileObject.Kind.SOURCE) {
+                @Override
+                public CharSequence getCharContent(final boolean ignoreEncodingErrors) {
+                    return source;
+                }
+            });
+        }
+        final List<String> options = Lists.newArrayList("-d", output.toString(), "-classpath", System.getProperty("java.class.path") + File.pathSeparator + output);
+        if (processor)
+            options.addAll(List.of("-processor", PluginRegistryProcessor.class.getName()));
+        else options.add("-proc:none");
+        Files.createDirectories(output);
+        assertTrue(compiler.getTask(null, null, null, options, null, units).call());
+    }
+
+    /**
+     * Pack the compiled classes into a plugin jar whose main class is registry.RegistryPlugin
+     *
+     * @param classes the directory of the compiled classes
+     * @param name the plugin name
+     * @return the plugin jar
+     */
+    private static File pluginJar(final Path classes, final String name) throws IOException {
+        final File file = Files.createTempFile(name, ".jar").toFile();
+        file.deleteOnExit();
+        try (final JarOutputStream jar = new JarOutputStream(new FileOutputStream(file)); final Stream<Path> paths = Files.walk(classes)) {
+            jar.putNextEntry(new JarEntry("plugin.yml"));
+            jar.write(("name: " + name + "\nmain: registry.RegistryPlugin\n").getBytes(StandardCharsets.UTF_8));
+            jar.closeEntry();
+            for (final Path path : (Iterable<Path>) paths.filter(Files::isRegularFile)::iterator) {
+                jar.putNextEntry(new JarEntry(classes.relativize(path).toString().replace(File.separatorChar, '/')));
+                jar.write(Files.readAllBytes(path));
+                jar.closeEntry();
+            }
+        }
+        return file;
+    }
+
+    private static int[] loadAndCount(final File file) throws IOException {
+        final PluginClassLoader classLoader = new PluginClassLoader(file);
+        assertTrue(classLoader.load());
+        final Plugin plugin = classLoader.getPlugin();
+        final int commands = (int) Command.getCommands().stream().filter(command -> command.getPlugin() == plugin).count();
+        final int listeners = (int) ListenerHandler.getRegisteredListeners().stream().filter(listener -> listener.getListener().getClass().getClassLoader() == classLoader).count();
+        PluginClassLoader.disablePlugin(plugin);
+        return new int[]{commands, listeners};
+    }
+
+    @Test
+    void testPluginDescriptionMask() {
+        final PluginDescription description = new PluginDescription(YamlConfiguration.load(new ByteArrayInputStream("name: MaskTest\nmain: mask.MaskPlugin\n".getBytes(StandardCharsets.UTF_8))));
+        assertTrue(description.getPermissions().isEmpty());
+        assertFalse(description.hasPermission(Permission.SEND_MESSAGE));
+        // the granted mask is recomputed when a composite permission is added
+        description.addPermission(Permission.MESSAGE);
+        assertTrue(description.hasPermission(Permission.SEND_MESSAGE));
+        assertTrue(description.hasPermission(Permission.UPLOAD_AUDIO));
+        assertTrue(description.hasPermission(Permission.UPLOAD_IMAGE));
+        assertFalse(description.hasPermission(Permission.BOT_LOGIN));
+        description.addPermission(Permission.BOT_LOGIN);
+        assertTrue(description.hasPermission(Permission.BOT_LOGIN));
+        assertTrue(description.hasPermission(Permission.SEND_MESSAGE));
+        assertEquals(2, description.getPermissions().size());
+        assertThrows(UnsupportedOperationException.class, () -> description.getPermissions().put(Permission.ALL, true));
+        assertFalse(description.hasPermission(Permission.EXIT));
+    }
+
+    @Test
+    void testFileAccessGuard() throws Exception {
+        final Path classes = Files.createTempDirectory("guard");
+        compile(classes, false, "RegistryPlugin", REGISTRY_PLUGIN);
+        final PluginClassLoader classLoader = new PluginClassLoader(pluginJar(classes, "GuardA"));
+        assertTrue(classLoader.load());
+        final Plugin plugin = classLoader.getPlugin();
+        final Method access = plugin.getClass().getMethod("access", String.class);
+        assertDoesNotThrow(() -> access.invoke(null, new File(plugin.getDefaultFolder(), "data.yml").getPath()));
+        // only the folder of the main plugin is guarded
+        assertDoesNotThrow(() -> access.invoke(null, new File("plugins/GuardB", "config.yml").getPath()));
+        InvocationTargetException e = assertThrows(InvocationTargetException.class, () -> access.invoke(null, new File(FocessQQ.getMainPlugin().getDefaultFolder(), "data.yml").getPath()));
+        assertTrue(e.getCause() instanceof PermissionException);
+        // the sampled denial points at the plugin code instead of the framework
+        final PermissionAudit.DenialSample sample = PermissionAudit.getSamples().stream().filter(i -> i.getPlugin().equals("GuardA")).findFirst().orElse(null);
+        assertNotNull(sample);
+        assertNotNull(sample.getPluginFrame());
+        assertEquals("registry.RegistryPlugin", sample.getPluginFrame().getClassName());
+        assertEquals("access", sample.getPluginFrame().getMethodName());
+        e = assertThrows(InvocationTargetException.class, () -> access.invoke(null, new File(FocessQQ.getMainPlugin().getDefaultFolder(), "config.yml").getPath()));
+        assertTrue(e.getCause() instanceof PermissionException);
+        // the denied access is not cached, so it is still denied
+        assertDoesNotThrow(() -> access.invoke(null, new File(plugin.getDefaultFolder(), "data.yml").getPath()));
+        assertThrows(InvocationTargetException.class, () -> access.invoke(null, new File(FocessQQ.getMainPlugin().getDefaultFolder(), "config.yml").getPath()));
+        // the framework is not limited
+        assertDoesNotThrow(() -> new DefaultConfig(new File(FocessQQ.getMainPlugin().getDefaultFolder(), "data.yml")));
+        PluginClassLoader.disablePlugin(plugin);
+    }
+
+    @Test
+    void testPluginByClass() throws IOException {
+        final Path classes = Files.createTempDirectory("byclass");
+        compile(classes, false, "RegistryPlugin", REGISTRY_PLUGIN, "RegistryCommand", REGISTRY_COMMAND);
+        final PluginClassLoader classLoader = new PluginClassLoader(pluginJar(classes, "ByClass"));
+        assertTrue(classLoader.load());
+        final Plugin plugin = classLoader.getPlugin();
+        final Class<?> commandClass = assertDoesNotThrow(() -> classLoader.findClass("registry.RegistryCommand", false));
+        assertSame(plugin, PluginCoreClassLoader.getPluginByClass(plugin.getClass()));
+        assertSame(plugin, PluginCoreClassLoader.getPluginByClass(commandClass));
+        assertSame(FocessQQ.getMainPlugin(), PluginCoreClassLoader.getPluginByClassOrDefault(TestFramework.class));
+        PluginClassLoader.disablePlugin(plugin);
+        // the classes are still reachable, but they do not belong to the unloaded plugin any more
+        assertNull(PluginCoreClassLoader.getPluginByClass(plugin.getClass()));
+        assertNull(PluginCoreClassLoader.getPluginByClass(commandClass));
+        assertSame(FocessQQ.getMainPlugin(), PluginCoreClassLoader.getPluginByClassOrDefault(commandClass));
+    }
+
+    @Test
+    void testPluginRegistry() throws IOException {
+        final Path root = Files.createTempDirectory("registry");
+        // the incremental build only compiles the listener, but the registry still contains the command
+        final Path withRegistry = root.resolve("with");
+        compile(withRegistry, true, "RegistryPlugin", REGISTRY_PLUGIN, "RegistryCommand", REGISTRY_COMMAND);
+        compile(withRegistry, true, "RegistryListener", REGISTRY_LISTENER);
+        assertEquals(List.of("registry.RegistryCommand", "registry.RegistryListener"), Files.readAllLines(withRegistry.resolve(PluginRegistryProcessor.REGISTRY)));
+        assertEquals(List.of("registry.RegistryCommand", "registry.RegistryListener", "registry.RegistryPlugin"), Files.readAllLines(withRegistry.resolve(PluginRegistryProcessor.CLASSES)));
+        final Path withoutRegistry = root.resolve("without");
+        compile(withoutRegistry, false, "RegistryPlugin", REGISTRY_PLUGIN, "RegistryCommand", REGISTRY_COMMAND, "RegistryListener", REGISTRY_LISTENER);
+        assertFalse(Files.exists(withoutRegistry.resolve(PluginRegistryProcessor.REGISTRY)));
+        // a registry missing the listener is only a hint, the listener is still registered
+        final Path partialRegistry = root.resolve("partial");
+        compile(partialRegistry, false, "RegistryPlugin", REGISTRY_PLUGIN, "RegistryCommand", REGISTRY_COMMAND, "RegistryListener", REGISTRY_LISTENER);
+        Files.createDirectories(partialRegistry.resolve(PluginRegistryProcessor.REGISTRY).getParent());
+        Files.write(partialRegistry.resolve(PluginRegistryProcessor.REGISTRY), List.of("registry.RegistryCommand"));
+
+        final int[] expected = loadAndCount(pluginJar(withoutRegistry, "RegistryWithout"));
+        assertArrayEquals(new int[]{1, 1}, expected);
+        assertArrayEquals(expected, loadAndCount(pluginJar(withRegistry, "RegistryWith")));
+        assertArrayEquals(expected, loadAndCount(pluginJar(partialRegistry, "RegistryPartial")));
+
+        // the handler is compiled without the processor, so it is not in the classes list and its fields are still analysed
+        final Path staleRegistry = root.resolve("stale");
+        compile(staleRegistry, true, "RegistryPlugin", REGISTRY_PLUGIN, "RegistryCommand", REGISTRY_COMMAND);
+        compile(staleRegistry, false, "RegistryHandler", REGISTRY_HANDLER);
+        assertFalse(Files.readAllLines(staleRegistry.resolve(PluginRegistryProcessor.CLASSES)).contains("registry.RegistryHandler"));
+        final PluginClassLoader classLoader = new PluginClassLoader(pluginJar(staleRegistry, "RegistryStale"));
+        assertTrue(classLoader.load());
+        final AtomicReference<String> argument = new AtomicReference<>();
+        final Command command = new Command("registryecho") {
+            @Override
+            public void init() {
+                this.addExecutor((sender, dataCollection, ioHandler) -> {
+                    argument.set(dataCollection.get());
+                    return CommandResult.ALLOW;
+                }, CommandArgument.ofString());
+            }
+
+            @Override
+            public @NotNull List<String> usage(CommandSender sender) {
+                return Lists.newArrayList();
+            }
+        };
+        Command.register(Plugin.plugin(), command);
+        assertEquals(CommandResult.ALLOW, assertDoesNotThrow(() -> CommandLine.exec("registryecho @RegistryStale:registryhandler").get()));
+        assertEquals("handled", argument.get());
+        command.unregister();
+        PluginClassLoader.disablePlugin(classLoader.getPlugin());
+    }
+
+    private static long countSchedulerGauges(final String name) throws IOException {
+        final StringWriter writer = new StringWriter();
+        Metrics.export(writer);
+        return Arrays.stream(writer.toString().split("\n")).filter(line -> line.startsWith("focess_scheduler_queue_depth{") && line.contains("scheduler=\"" + name + "\"")).count();
+    }
+
+    @Test
+    void testSchedulerMetrics() throws IOException {
+        Scheduler scheduler1 = Schedulers.newFocessScheduler(FocessQQ.getMainPlugin(), "TestMetrics");
+        Scheduler scheduler2 = Schedulers.newFocessScheduler(FocessQQ.getMainPlugin(), "TestMetrics");
+        // the schedulers with the same name keep their own gauges
+        assertEquals(2, countSchedulerGauges("TestMetrics"));
+        scheduler1.close();
+        assertEquals(1, countSchedulerGauges("TestMetrics"));
+        scheduler2.close();
+        assertEquals(0, countSchedulerGauges("TestMetrics"));
+    }
+
     @Test
     void testExit() {
         Field field = null;
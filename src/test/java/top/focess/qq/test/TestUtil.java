@@ -3,7 +3,11 @@ package top.focess.qq.test;
 import com.google.common.collect.Lists;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import top.focess.qq.core.metrics.Metrics;
+import top.focess.qq.core.permission.Permission;
+import top.focess.qq.core.util.LatencyHistogram;
 import top.focess.qq.core.util.MethodCaller;
+import top.focess.qq.core.util.Trace;
 import top.focess.util.Base64;
 import top.focess.util.json.JSONObject;
 import top.focess.util.network.HttpResponse;
@@ -20,6 +24,7 @@ import top.focess.util.yaml.YamlConfiguration;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -56,6 +61,60 @@ public class TestUtil {
         runnable2.run();
     }
 
+    /**
+     * Get the caller class by the StackWalker and by the stack trace index used before, from the same frame
+     *
+     * @return the class found by the StackWalker and the class found by the stack trace
+     */
+    private static Class<?>[] callerClasses() throws ClassNotFoundException {
+        // the old implementation took the element [3] inside getCallerClass, which is the element [2] here
+        return new Class<?>[]{MethodCaller.getCallerClass(), Class.forName(Thread.currentThread().getStackTrace()[2].getClassName())};
+    }
+
+    @Test
+    void testMethodCallerDepth() throws Exception {
+        Class<?>[] classes = callerClasses();
+        assertEquals(TestUtil.class, classes[0]);
+        assertEquals(classes[1], classes[0]);
+        Runnable runnable = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Class<?>[] classes = callerClasses();
+                    assertEquals(this.getClass(), classes[0]);
+                    assertEquals(classes[1], classes[0]);
+                } catch (ClassNotFoundException e) {
+                    fail(e);
+                }
+            }
+        };
+        runnable.run();
+        // the only difference is that the StackWalker skips the reflection frames, so the real caller is found
+        classes = (Class<?>[]) TestUtil.class.getDeclaredMethod("callerClasses").invoke(null);
+        assertEquals(TestUtil.class, classes[0]);
+        assertTrue(classes[1].getName().startsWith("jdk.internal.reflect.") || classes[1] == java.lang.reflect.Method.class);
+    }
+
+    @Test
+    void testPermissionMask() {
+        assertEquals(Permission.REGISTER_LISTENER.getMask() | Permission.REGISTER_COMMAND.getMask() | Permission.REGISTER_DATA_BUFFER.getMask() | Permission.REGISTER_SPECIAL_ARGUMENT_COMPLEX_HANDLER.getMask(), Permission.REGISTER.getMask());
+        assertEquals(Permission.SEND_MESSAGE.getBit(), Permission.SEND_MESSAGE.getMask());
+        assertEquals(0, Permission.MESSAGE.getBit());
+        // the composite permissions contain the leaves of their composite children
+        assertTrue(Permission.ALL.hasPermission(Permission.REGISTER_COMMAND));
+        assertTrue(Permission.ALL.hasPermission(Permission.SEND_MESSAGE));
+        assertTrue(Permission.ALL.hasPermission(Permission.REMOVE_SCHEDULER));
+        assertFalse(Permission.ALL.hasPermission(Permission.EXECUTE_CONSOLE_COMMAND));
+        assertTrue(Permission.MESSAGE.hasPermission(Permission.UPLOAD_IMAGE));
+        assertFalse(Permission.MESSAGE.hasPermission(Permission.BOT_LOGIN));
+        // only the leaf permissions are contained
+        assertFalse(Permission.ALL.hasPermission(Permission.MESSAGE));
+        assertTrue(Permission.NETWORK.hasPermission(Permission.NETWORK));
+        for (Permission permission : Permission.values())
+            if (permission.getBit() != 0)
+                assertEquals(1, Long.bitCount(permission.getBit()));
+    }
+
     @Test
     void testOptions() {
         String[] args = new String[]{"--a", "1", "--b", "--c", "--d", "hello", "world"};
@@ -182,6 +241,79 @@ public class TestUtil {
         assertEquals(19, (Integer) jsonObject1.getJSON(1).get("age"));
     }
 
+    @Test
+    void testLatencyHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getPercentile(0.5));
+        for (int i = 0; i < 99; i++)
+            histogram.record(1000);
+        histogram.record(1000000);
+        assertEquals(100, histogram.getCount());
+        assertEquals(1000000, histogram.getMax());
+        assertTrue(histogram.getPercentile(0.5) >= 1000 && histogram.getPercentile(0.5) < 2048);
+        assertTrue(histogram.getPercentile(0.99) < 2048);
+        assertEquals(1000000, histogram.getPercentile(1));
+    }
+
+    @Test
+    void testTrace() throws InterruptedException {
+        assertNull(Trace.current());
+        int sampleRate = Trace.getSampleRate();
+        Trace.setSampleRate(1);
+        Runnable runnable;
+        try (Trace.Scope ignored = Trace.begin("test")) {
+            assertNotNull(Trace.current());
+            try (Trace.Span span = Trace.span("span")) {
+                runnable = Trace.wrap(() -> Trace.record("wrapped", System.nanoTime()));
+            }
+        }
+        assertNull(Trace.current());
+        Thread thread = new Thread(runnable);
+        thread.start();
+        thread.join();
+        Trace trace = Trace.getSlowestTraces(256).stream().filter(i -> i.getName().equals("test")).findFirst().orElse(null);
+        assertNotNull(trace);
+        assertEquals(2, trace.getSpans().size());
+        assertEquals("span", trace.getSpans().get(0).getName());
+        assertEquals("wrapped", trace.getSpans().get(1).getName());
+        // the detail is appended to the name only when the span is traced
+        try (Trace.Scope ignored = Trace.begin("test-detail", 123)) {
+            try (Trace.Span span = Trace.span("dispatch", TestUtil.class)) {
+                Trace.record("queue", 456, System.nanoTime());
+            }
+            trace = Trace.current();
+        }
+        assertNotNull(trace);
+        assertEquals("test-detail 123", trace.getName());
+        assertEquals("queue 456", trace.getSpans().get(0).getName());
+        assertEquals("dispatch TestUtil", trace.getSpans().get(1).getName());
+        // no trace is started if the tracing is disabled
+        Trace.setSampleRate(0);
+        try (Trace.Scope ignored = Trace.begin("test-disabled", 123)) {
+            assertNull(Trace.current());
+        }
+        Trace.setSampleRate(sampleRate);
+    }
+
+    @Test
+    void testMetrics() throws Exception {
+        Metrics.counter("test_total", "test counter", "name", "a\"b").add(3);
+        Metrics.histogram("test_seconds", "test summary").record(2000000000L);
+        Metrics.gauge("test_gauge", "test gauge", () -> 7);
+        StringWriter writer = new StringWriter();
+        Metrics.export(writer);
+        String text = writer.toString();
+        assertTrue(text.contains("# TYPE test_total counter\ntest_total{name=\"a\\\"b\"} 3\n"));
+        assertTrue(text.contains("test_seconds_sum 2.0\n"));
+        assertTrue(text.contains("test_seconds_count 1\n"));
+        assertTrue(text.contains("test_gauge 7\n"));
+        Metrics.remove("test_gauge");
+        writer = new StringWriter();
+        Metrics.export(writer);
+        assertFalse(writer.toString().contains("test_gauge"));
+        assertThrows(IllegalArgumentException.class, () -> Metrics.gauge("test_total", "test gauge", () -> 0));
+    }
+
     @Test
     void testBase64() {
         String s = "focess";